@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import com.example.contract.AllocationContract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify throughput of AllocationContract for each of its commands. Create is a BulkAllocationFlow batch of
+ * allocations spread over the project's delivery teams; see {@link ContractTransactions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationContractBenchmark {
+    @Param({"1", "10", "100"})
+    public int deliveryTeams;
+
+    @Param({"1", "10", "50"})
+    public int allocations;
+
+    private final AllocationContract contract = new AllocationContract();
+    private LedgerTransaction create;
+    private LedgerTransaction update;
+    private LedgerTransaction close;
+
+    @Setup
+    public void setup() {
+        final ContractTransactions transactions = new ContractTransactions(deliveryTeams, 2);
+        create = transactions.bulkAllocation(allocations);
+        update = transactions.allocationUpdate();
+        close = transactions.allocationClose();
+
+        // A fixture that fails verification would only measure the failure path.
+        contract.verify(create);
+        contract.verify(update);
+        contract.verify(close);
+    }
+
+    @Benchmark
+    public void create() {
+        contract.verify(create);
+    }
+
+    @Benchmark
+    public void update() {
+        contract.verify(update);
+    }
+
+    @Benchmark
+    public void close() {
+        contract.verify(close);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.benchmark;
+
+import com.example.contract.AllocationContract;
+import com.example.contract.DemandContract;
+import com.example.contract.IOUContract;
+import com.example.contract.ProjectContract;
+import com.example.state.AllocationState;
+import com.example.state.DemandState;
+import com.example.state.IOUState;
+import com.example.state.ProjectState;
+import com.example.util.DateUtil;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.LedgerTransaction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.contract.AllocationContract.ALLOCATION_CONTRACT_ID;
+import static com.example.contract.DemandContract.DEMAND_CONTRACT_ID;
+import static com.example.contract.IOUContract.IOU_CONTRACT_ID;
+import static com.example.contract.ProjectContract.PROJECT_CONTRACT_ID;
+
+/**
+ * The transactions the flows build for every contract command, with the same states, commands and signers, so that
+ * each one verifies. The project has deliveryTeams delivery teams and the approved demand has approvalParties
+ * approval parties, the CIO and COO included.
+ */
+final class ContractTransactions {
+    private static final int BUDGET = 1000000;
+    private static final int AMOUNT = 100;
+
+    private final Party sponsor = TransactionFixture.party("Sponsor");
+    private final Party platformLead = TransactionFixture.party("PL1");
+    private final Party cio = TransactionFixture.party("CIO");
+    private final Party coo = TransactionFixture.party("COO");
+    private final List<Party> teams;
+    private final List<Party> approvalParties;
+    // The demand update requires a start date in the future.
+    private final LocalDateTime startDate = LocalDate.now().plusMonths(1).atStartOfDay();
+    private final LocalDateTime endDate = startDate.plusYears(1);
+
+    private final DemandState demand = new DemandState("Project", sponsor, platformLead);
+    private final DemandState approvedDemand;
+    private final ProjectState project;
+
+    ContractTransactions(int deliveryTeams, int approvalParties) {
+        this.teams = TransactionFixture.parties("DLTeam", deliveryTeams);
+        this.approvalParties = new ArrayList<>();
+        this.approvalParties.add(cio);
+        this.approvalParties.add(coo);
+        this.approvalParties.addAll(TransactionFixture.parties("Approver", approvalParties - 2));
+        this.approvedDemand = demand.updateState(BUDGET, startDate, endDate, new ArrayList<>(this.approvalParties), demand.getLinearId());
+        this.project = new ProjectState("PL000001", "AL000001", demand.getDescription(), BUDGET, startDate, endDate,
+                sponsor, platformLead, cio, coo, teams, demand.getLinearId().getId().toString(), new UniqueIdentifier());
+    }
+
+    /** BatchDemandCreationFlow: several demands issued at once, each to its own platform lead. */
+    LedgerTransaction demandCreate(int demands) {
+        final TransactionFixture tx = new TransactionFixture();
+        final List<Party> signers = new ArrayList<>();
+        signers.add(sponsor);
+        for(Party lead : TransactionFixture.parties("PL", demands)){
+            tx.output(DEMAND_CONTRACT_ID, new DemandState("Demand", sponsor, lead));
+            signers.add(lead);
+        }
+        return tx.command(new DemandContract.Commands.Create(), signers).toLedgerTransaction();
+    }
+
+    /** DemandUpdateFlow: the demand is approved and becomes a project, under both a DemandContract and a ProjectContract command. */
+    LedgerTransaction demandUpdate() {
+        final ProjectState newProject = new ProjectState("PL000001", "AL000001", demand.getDescription(), BUDGET,
+                startDate, endDate, sponsor, platformLead, cio, coo, demand.getLinearId().getId().toString());
+        return new TransactionFixture()
+                .input(DEMAND_CONTRACT_ID, demand)
+                .output(DEMAND_CONTRACT_ID, approvedDemand)
+                .output(PROJECT_CONTRACT_ID, newProject)
+                .command(new DemandContract.Commands.Update(), sponsor, platformLead)
+                .command(new ProjectContract.Commands.Create(), cio, coo)
+                .toLedgerTransaction();
+    }
+
+    /** DemandCloseFlow: the demand is consumed once its end date has passed. */
+    LedgerTransaction demandClose() {
+        return new TransactionFixture()
+                .input(DEMAND_CONTRACT_ID, approvedDemand)
+                .command(new DemandContract.Commands.Close(), sponsor)
+                .timeWindow(TimeWindow.fromOnly(DateUtil.expiryOf(endDate)))
+                .toLedgerTransaction();
+    }
+
+    /**
+     * BulkAllocationFlow: a batch of allocations to the project's delivery teams in turn, folded into one project
+     * update, under both an AllocationContract and a ProjectContract command.
+     */
+    LedgerTransaction bulkAllocation(int allocations) {
+        final TransactionFixture tx = new TransactionFixture().input(PROJECT_CONTRACT_ID, project);
+        final List<Party> allocationSigners = new ArrayList<>();
+        allocationSigners.add(platformLead);
+        ProjectState allocatedProject = project;
+        for(int i = 0; i < allocations; i++){
+            final Party team = teams.get(i % teams.size());
+            tx.output(ALLOCATION_CONTRACT_ID, allocationOf(team));
+            allocatedProject = allocatedProject.updateProjectUponNewAllocation(AMOUNT, team);
+            if(!allocationSigners.contains(team)){
+                allocationSigners.add(team);
+            }
+        }
+        return tx.output(PROJECT_CONTRACT_ID, allocatedProject)
+                .command(new AllocationContract.Commands.Create(), allocationSigners)
+                .command(new ProjectContract.Commands.UpdateBudget(), platformLead, coo)
+                .toLedgerTransaction();
+    }
+
+    /** AllocationUpdateFlow: one allocation's amount changes and the project budget absorbs the difference. */
+    LedgerTransaction allocationUpdate() {
+        final Party team = teams.get(teams.size() - 1);
+        final AllocationState allocation = allocationOf(team);
+        final ProjectState allocatedProject = project.updateProjectUponNewAllocation(AMOUNT, team);
+        return new TransactionFixture()
+                .input(PROJECT_CONTRACT_ID, allocatedProject)
+                .input(ALLOCATION_CONTRACT_ID, allocation)
+                .output(ALLOCATION_CONTRACT_ID, allocation.updateAllocationState(AMOUNT + 50, startDate, endDate))
+                .output(PROJECT_CONTRACT_ID, allocatedProject.updateProjectUponUpdateAllocation(AMOUNT, AMOUNT + 50))
+                .command(new ProjectContract.Commands.UpdateAllocation(), platformLead, coo)
+                .command(new AllocationContract.Commands.Update(), coo, team, platformLead)
+                .toLedgerTransaction();
+    }
+
+    /** AllocationCloseFlow: the allocation is consumed once its end date has passed. */
+    LedgerTransaction allocationClose() {
+        return new TransactionFixture()
+                .input(ALLOCATION_CONTRACT_ID, allocationOf(teams.get(0)))
+                .command(new AllocationContract.Commands.Close(), platformLead)
+                .timeWindow(TimeWindow.fromOnly(DateUtil.expiryOf(endDate)))
+                .toLedgerTransaction();
+    }
+
+    /** ExampleFlow: an IOU issued by one party to another. */
+    LedgerTransaction iouCreate() {
+        final Party lender = TransactionFixture.party("PartyA");
+        final Party borrower = TransactionFixture.party("PartyB");
+        return new TransactionFixture()
+                .output(IOU_CONTRACT_ID, new IOUState(AMOUNT, lender, borrower))
+                .command(new IOUContract.Commands.Create(), lender, borrower)
+                .toLedgerTransaction();
+    }
+
+    private AllocationState allocationOf(Party team) {
+        return new AllocationState(project.getProjectCode(), project.getAllocationKey(), project.getDescription(),
+                platformLead, team, coo, AMOUNT, startDate, endDate);
+    }
+}
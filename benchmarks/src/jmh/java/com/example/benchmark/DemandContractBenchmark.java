@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import com.example.contract.DemandContract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify throughput of DemandContract for each of its commands. Create is a BatchDemandCreationFlow batch of demands
+ * and Update approves a demand with approvalParties approval parties; see {@link ContractTransactions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DemandContractBenchmark {
+    @Param({"1", "10", "50"})
+    public int demands;
+
+    @Param({"2", "10", "50"})
+    public int approvalParties;
+
+    private final DemandContract contract = new DemandContract();
+    private LedgerTransaction create;
+    private LedgerTransaction update;
+    private LedgerTransaction close;
+
+    @Setup
+    public void setup() {
+        final ContractTransactions transactions = new ContractTransactions(1, approvalParties);
+        create = transactions.demandCreate(demands);
+        update = transactions.demandUpdate();
+        close = transactions.demandClose();
+
+        // A fixture that fails verification would only measure the failure path.
+        contract.verify(create);
+        contract.verify(update);
+        contract.verify(close);
+    }
+
+    @Benchmark
+    public void create() {
+        contract.verify(create);
+    }
+
+    @Benchmark
+    public void update() {
+        contract.verify(update);
+    }
+
+    @Benchmark
+    public void close() {
+        contract.verify(close);
+    }
+}
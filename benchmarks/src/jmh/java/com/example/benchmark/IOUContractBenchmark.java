@@ -0,0 +1,34 @@
+package com.example.benchmark;
+
+import com.example.contract.IOUContract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify throughput of IOUContract's only command, as a baseline for the cost of a minimal transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOUContractBenchmark {
+    private final IOUContract contract = new IOUContract();
+    private LedgerTransaction create;
+
+    @Setup
+    public void setup() {
+        create = new ContractTransactions(1, 2).iouCreate();
+
+        // A fixture that fails verification would only measure the failure path.
+        contract.verify(create);
+    }
+
+    @Benchmark
+    public void create() {
+        contract.verify(create);
+    }
+}
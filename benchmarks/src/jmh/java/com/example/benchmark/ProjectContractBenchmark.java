@@ -0,0 +1,68 @@
+package com.example.benchmark;
+
+import com.example.contract.ProjectContract;
+import net.corda.core.contracts.Contract;
+import net.corda.core.transactions.LedgerTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify throughput of ProjectContract for each of its commands, against the requireThat implementation it replaced.
+ * Create is DemandUpdateFlow's transaction, UpdateBudget is BulkAllocationFlow's and UpdateAllocation is
+ * AllocationUpdateFlow's; see {@link ContractTransactions}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectContractBenchmark {
+    @Param({"singlePass", "requireThat"})
+    public String implementation;
+
+    @Param({"1", "10", "100"})
+    public int deliveryTeams;
+
+    @Param({"1", "10"})
+    public int allocations;
+
+    @Param({"2", "10"})
+    public int approvalParties;
+
+    private Contract contract;
+    private LedgerTransaction create;
+    private LedgerTransaction updateBudget;
+    private LedgerTransaction updateAllocation;
+
+    @Setup
+    public void setup() {
+        contract = implementation.equals("singlePass") ? new ProjectContract() : new RequireThatProjectContract();
+
+        final ContractTransactions transactions = new ContractTransactions(deliveryTeams, approvalParties);
+        create = transactions.demandUpdate();
+        updateBudget = transactions.bulkAllocation(allocations);
+        updateAllocation = transactions.allocationUpdate();
+
+        // A fixture that fails verification would only measure the failure path.
+        contract.verify(create);
+        contract.verify(updateBudget);
+        contract.verify(updateAllocation);
+    }
+
+    @Benchmark
+    public void create() {
+        contract.verify(create);
+    }
+
+    @Benchmark
+    public void updateBudget() {
+        contract.verify(updateBudget);
+    }
+
+    @Benchmark
+    public void updateAllocation() {
+        contract.verify(updateAllocation);
+    }
+}
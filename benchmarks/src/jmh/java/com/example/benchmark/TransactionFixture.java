@@ -0,0 +1,78 @@
+package com.example.benchmark;
+
+import net.corda.core.contracts.CommandData;
+import net.corda.core.contracts.CommandWithParties;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.PrivacySalt;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.LedgerTransaction;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds a resolved {@link LedgerTransaction} directly, so that a benchmark can hand it to {@code Contract.verify}
+ * without a node, a vault or signatures. The transactions mirror the ones the flows build.
+ */
+final class TransactionFixture {
+    static final Party NOTARY = party("Controller");
+
+    private final List<StateAndRef<ContractState>> inputs = new ArrayList<>();
+    private final List<TransactionState<ContractState>> outputs = new ArrayList<>();
+    private final List<CommandWithParties<CommandData>> commands = new ArrayList<>();
+    private TimeWindow timeWindow;
+
+    static Party party(String organisation) {
+        return new Party(new CordaX500Name(organisation, "Singapore", "SG"), Crypto.generateKeyPair().getPublic());
+    }
+
+    static List<Party> parties(String prefix, int count) {
+        final List<Party> parties = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            parties.add(party(prefix + i));
+        }
+        return parties;
+    }
+
+    TransactionFixture input(String contract, ContractState state) {
+        final StateRef ref = new StateRef(SecureHash.sha256("input-" + inputs.size()), 0);
+        inputs.add(new StateAndRef<>(new TransactionState<>(state, contract, NOTARY), ref));
+        return this;
+    }
+
+    TransactionFixture output(String contract, ContractState state) {
+        outputs.add(new TransactionState<>(state, contract, NOTARY));
+        return this;
+    }
+
+    TransactionFixture command(CommandData value, List<Party> signers) {
+        final List<PublicKey> keys = new ArrayList<>(signers.size());
+        signers.forEach(signer -> keys.add(signer.getOwningKey()));
+        commands.add(new CommandWithParties<>(keys, signers, value));
+        return this;
+    }
+
+    TransactionFixture command(CommandData value, Party... signers) {
+        return command(value, Arrays.asList(signers));
+    }
+
+    TransactionFixture timeWindow(TimeWindow timeWindow) {
+        this.timeWindow = timeWindow;
+        return this;
+    }
+
+    LedgerTransaction toLedgerTransaction() {
+        return new LedgerTransaction(inputs, outputs, commands, Collections.emptyList(),
+                SecureHash.sha256("transaction"), NOTARY, timeWindow, new PrivacySalt());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.api;
+
+import com.example.flow.AllocationFlow;
+import com.example.flow.BulkAllocationFlow;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.flows.StateMachineRunId;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.FlowProgressHandle;
+import net.corda.core.transactions.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Merges allocation requests for the same project that arrive close together into one BulkAllocationFlow, so that
+ * they share a single transaction, signature round and notarisation instead of paying for one each.
+ *
+ * A batch is opened by the first request for a project and is sent to the ProjectFlowQueue once it holds
+ * project.allocation.batchSize requests or project.allocation.lingerMillis has passed, whichever comes first; both
+ * are read from system properties. Every caller gets the outcome of the transaction holding its allocation. If a
+ * batch fails, for example because one allocation is refused by its delivery team, it is split in two halves that
+ * are retried as batches of their own, down to single requests, so that one faulty request costs a few extra
+ * transactions rather than one per request in the batch.
+ */
+public class AllocationBatcher {
+    public static final String BATCH_SIZE_PROPERTY = "project.allocation.batchSize";
+    public static final String LINGER_MILLIS_PROPERTY = "project.allocation.lingerMillis";
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+
+    static private final Logger logger = LoggerFactory.getLogger(AllocationBatcher.class);
+
+    private final CordaRPCOps rpcOps;
+    private final ProjectFlowQueue flowQueue;
+    private final int maxBatchSize;
+    private final long lingerMillis;
+    private final Map<UniqueIdentifier, Batch> openBatches = new HashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "allocation-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AllocationBatcher(CordaRPCOps rpcOps, ProjectFlowQueue flowQueue) {
+        this(rpcOps, flowQueue, Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                Long.getLong(LINGER_MILLIS_PROPERTY, DEFAULT_LINGER_MILLIS));
+    }
+
+    public AllocationBatcher(CordaRPCOps rpcOps, ProjectFlowQueue flowQueue, int maxBatchSize, long lingerMillis) {
+        this.rpcOps = rpcOps;
+        this.flowQueue = flowQueue;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.lingerMillis = Math.max(0, lingerMillis);
+    }
+
+    /**
+     * Adds an allocation to the open batch of its project. onStarted is given the handle of the flow carrying the
+     * allocation once it starts, and the returned future completes with that flow's transaction.
+     */
+    public CompletableFuture<SignedTransaction> submit(UniqueIdentifier projectLinearId,
+                                                       BulkAllocationFlow.AllocationRequest request,
+                                                       Consumer<FlowProgressHandle<SignedTransaction>> onStarted) {
+        final Entry entry = new Entry(request, onStarted);
+        Batch full = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(projectLinearId);
+            if (batch == null) {
+                batch = new Batch(projectLinearId);
+                openBatches.put(projectLinearId, batch);
+                final Batch lingering = batch;
+                timer.schedule(() -> close(lingering), lingerMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.entries.add(entry);
+            if (batch.entries.size() >= maxBatchSize) {
+                openBatches.remove(projectLinearId);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return entry.result;
+    }
+
+    private void close(Batch batch) {
+        synchronized (openBatches) {
+            //a batch that filled up has already been sent
+            if (openBatches.get(batch.projectLinearId) != batch) {
+                return;
+            }
+            openBatches.remove(batch.projectLinearId);
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        send(batch.projectLinearId, batch.entries);
+    }
+
+    private void send(UniqueIdentifier projectLinearId, List<Entry> entries) {
+        if (entries.size() == 1) {
+            sendAlone(projectLinearId, entries.get(0));
+            return;
+        }
+
+        final List<BulkAllocationFlow.AllocationRequest> requests = entries.stream().map(entry -> entry.request).collect(toList());
+        flowQueue.submit(projectLinearId,
+                () -> rpcOps.startTrackedFlowDynamic(BulkAllocationFlow.Initiator.class, projectLinearId, requests),
+                flowHandle -> {
+                    final FlowProgressHandle<SignedTransaction> sharedHandle = new SharedProgressHandle(flowHandle);
+                    entries.forEach(entry -> entry.onStarted.accept(sharedHandle));
+                })
+                .whenComplete((stx, error) -> {
+                    if (error == null) {
+                        entries.forEach(entry -> entry.result.complete(stx));
+                    } else {
+                        logger.warn("Batch of {} allocations for project {} failed, retrying it in two halves",
+                                entries.size(), projectLinearId, error);
+                        final int half = entries.size() / 2;
+                        send(projectLinearId, entries.subList(0, half));
+                        send(projectLinearId, entries.subList(half, entries.size()));
+                    }
+                });
+    }
+
+    private void sendAlone(UniqueIdentifier projectLinearId, Entry entry) {
+        final BulkAllocationFlow.AllocationRequest request = entry.request;
+        flowQueue.submit(projectLinearId,
+                () -> rpcOps.startTrackedFlowDynamic(AllocationFlow.Initiator.class, projectLinearId, request.getDeliveryTeam(),
+                        request.getAmount(), request.getStartDate(), request.getEndDate()),
+                entry.onStarted)
+                .whenComplete((stx, error) -> {
+                    if (error == null) {
+                        entry.result.complete(stx);
+                    } else {
+                        entry.result.completeExceptionally(error);
+                    }
+                });
+    }
+
+    /**
+     * Lets every request in a batch follow the progress of the one flow carrying them over a single subscription.
+     */
+    private static class SharedProgressHandle implements FlowProgressHandle<SignedTransaction> {
+        private final FlowProgressHandle<SignedTransaction> flowHandle;
+        private final Observable<String> progress;
+
+        private SharedProgressHandle(FlowProgressHandle<SignedTransaction> flowHandle) {
+            this.flowHandle = flowHandle;
+            this.progress = flowHandle.getProgress().share();
+        }
+
+        @Override
+        public StateMachineRunId getId() {
+            return flowHandle.getId();
+        }
+
+        @Override
+        public CordaFuture<SignedTransaction> getReturnValue() {
+            return flowHandle.getReturnValue();
+        }
+
+        @Override
+        public Observable<String> getProgress() {
+            return progress;
+        }
+
+        @Override
+        public void close() {
+            flowHandle.close();
+        }
+    }
+
+    private static class Batch {
+        private final UniqueIdentifier projectLinearId;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Batch(UniqueIdentifier projectLinearId) {
+            this.projectLinearId = projectLinearId;
+        }
+    }
+
+    private static class Entry {
+        private final BulkAllocationFlow.AllocationRequest request;
+        private final Consumer<FlowProgressHandle<SignedTransaction>> onStarted;
+        private final CompletableFuture<SignedTransaction> result = new CompletableFuture<>();
+
+        private Entry(BulkAllocationFlow.AllocationRequest request, Consumer<FlowProgressHandle<SignedTransaction>> onStarted) {
+            this.request = request;
+            this.onStarted = onStarted;
+        }
+    }
+}
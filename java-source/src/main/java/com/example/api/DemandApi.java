@@ -1,18 +1,24 @@
 package com.example.api;
 
+import com.example.flow.BatchDemandCreationFlow;
 import com.example.flow.DemandCreationFlow;
 import com.example.flow.DemandUpdateFlow;
+import com.example.schema.DemandSchemaV1;
 import com.example.state.DemandState;
+import com.example.util.PagingUtil;
 import com.example.util.ResponseUtil;
-import com.google.common.collect.ImmutableList;
+import com.example.util.StateViews;
 import com.google.common.collect.ImmutableMap;
-import net.corda.core.contracts.StateAndRef;
+import com.google.common.collect.Lists;
+import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.messaging.FlowProgressHandle;
-import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.SortAttribute;
 import net.corda.core.transactions.SignedTransaction;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -25,6 +31,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -32,20 +40,31 @@ import java.util.concurrent.ExecutionException;
 import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
 
 @Path("demand")
 public class DemandApi {
     private final CordaRPCOps rpcOps;
     private final CordaX500Name myLegalName;
+    private final FlowStatusRegistry flowStatusRegistry;
+    private final ReadModel readModel;
+    private final NetworkMapView networkMapView;
 
-    private final List<String> serviceNames = ImmutableList.of("Controller", "Network Map Service");
+    static private final Logger logger = LoggerFactory.getLogger(DemandApi.class);
 
-    private final String platformLeadServiceNamePrefix = "PL";
+    static final int MAX_DEMANDS_PER_TRANSACTION = 100;
 
-    static private final Logger logger = LoggerFactory.getLogger(DemandApi.class);
+    static private final Map<String, SortAttribute> DEMAND_SORT_COLUMNS = ImmutableMap.of(
+            PagingUtil.RECORDED_TIME, PagingUtil.RECORDED_TIME_ATTRIBUTE,
+            "budget", new SortAttribute.Custom(DemandSchemaV1.PersistentDemand.class, "amount"),
+            "startDate", new SortAttribute.Custom(DemandSchemaV1.PersistentDemand.class, "startDate"));
 
-    public DemandApi(CordaRPCOps rpcOps) {
+    public DemandApi(CordaRPCOps rpcOps, FlowStatusRegistry flowStatusRegistry, ReadModel readModel, NetworkMapView networkMapView) {
         this.rpcOps = rpcOps;
+        this.flowStatusRegistry = flowStatusRegistry;
+        this.readModel = readModel;
+        this.networkMapView = networkMapView;
         this.myLegalName = rpcOps.nodeInfo().getLegalIdentities().get(0).getName();
     }
 
@@ -60,12 +79,39 @@ public class DemandApi {
     }
 
     /**
-     * Displays all Demand states that exist in the node's vault.
+     * Displays one page of the unconsumed Demand states in the node's vault. The cursor for the following page,
+     * if any, is returned in the X-Next-Cursor header.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<DemandState>> getDemands() {
-        return rpcOps.vaultQuery(DemandState.class).getStates();
+    public Response getDemands(@QueryParam("pageSize") Integer pageSize,
+                               @QueryParam("cursor") String cursor,
+                               @QueryParam("sort") String sortColumn,
+                               @QueryParam("order") String order,
+                               @QueryParam("compact") boolean compact,
+                               @QueryParam("fields") String fields) {
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        return PagingUtil.queryPage(rpcOps, criteria, DemandState.class, DEMAND_SORT_COLUMNS,
+                pageSize, cursor, sortColumn, order, compact, fields);
+    }
+
+    /**
+     * Displays the unconsumed Demand states assigned to the given platform lead, from the read model.
+     */
+    @GET
+    @Path("by-platform-lead")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDemandsByPlatformLead(@QueryParam("party") CordaX500Name partyName,
+                                             @QueryParam("compact") boolean compact,
+                                             @QueryParam("fields") String fields) {
+        if (partyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'party' missing or has wrong format.\n").build();
+        }
+        if (!readModel.getDemands().isReady()) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Read model is still loading.\n").build();
+        }
+        return StateViews.listResponse(readModel.getDemands().getBy(ReadModel.PLATFORM_LEAD, partyName.toString()),
+                DemandState.class, compact, fields);
     }
 
 
@@ -77,12 +123,7 @@ public class DemandApi {
     @Path("platformLeads")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, List<CordaX500Name>> getPlatformLeadPeers() {
-        List<NodeInfo> nodeInfoSnapshot = rpcOps.networkMapSnapshot();
-        return ImmutableMap.of("plPeers", nodeInfoSnapshot
-                .stream()
-                .map(node -> node.getLegalIdentities().get(0).getName())
-                .filter(name -> !name.equals(myLegalName) && name.getOrganisation().startsWith(platformLeadServiceNamePrefix))
-                .collect(toList()));
+        return ImmutableMap.of("plPeers", networkMapView.getPlatformLeads());
     }
 
 
@@ -95,11 +136,13 @@ public class DemandApi {
      * This end-point takes a Party name parameter as part of the path. If the serving node can't find the other party
      * in its network map cache, it will return an HTTP bad request.
      *
-     * The flow is invoked asynchronously. It returns a future when the flow's call() method returns.
+     * The flow is invoked asynchronously. It returns a future when the flow's call() method returns. With async=true
+     * the end-point answers 202 Accepted straight away and the outcome can be polled from /api/flows/{id}.
      */
     @POST
     @Path("create-demand")
-    public Response createDemand(@QueryParam("description") String description, @QueryParam("partyName") CordaX500Name partyName) throws InterruptedException, ExecutionException {
+    public Response createDemand(@QueryParam("description") String description, @QueryParam("partyName") CordaX500Name partyName,
+                                 @QueryParam("async") boolean async) throws InterruptedException, ExecutionException {
         logger.error("Starting validation");
         if (description == null || description.isEmpty()) {
             return Response.status(BAD_REQUEST).entity("Query parameter 'description' must exist.\n").build();
@@ -119,6 +162,9 @@ public class DemandApi {
         try {
             FlowProgressHandle<SignedTransaction> flowHandle = rpcOps
                     .startTrackedFlowDynamic(DemandCreationFlow.Initiator.class, description, otherParty);
+            if (async) {
+                return FlowsApi.acceptedResponse(flowStatusRegistry.track(DemandCreationFlow.Initiator.class, flowHandle));
+            }
             flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s\n", evt));
 
             // The line below blocks and waits for the flow to return.
@@ -138,13 +184,116 @@ public class DemandApi {
         }
     }
 
+    /**
+     * Creates many demands at once. The body is a JSON array of {description, platformLead} entries, with the
+     * platform lead given as an X.500 name.
+     *
+     * The demands of each platform lead are issued together by BatchDemandCreationFlow, at most
+     * MAX_DEMANDS_PER_TRANSACTION to a transaction, so that no platform lead sees another's demands and one platform
+     * lead refusing does not hold up the others. The flows run in parallel and the response holds one result per
+     * entry, in order: created with its linearId and transactionId, rejected for a bad entry, or failed with the error
+     * of its transaction. The response is 201 when every demand was created and 200 otherwise.
+     */
+    @POST
+    @Path("batch-create")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response createDemands(List<DemandEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity("At least one demand must be given.\n").build();
+        }
+
+        final List<JSONObject> results = new ArrayList<>();
+        final Map<Party, List<Integer>> indexesByPlatformLead = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            final DemandEntry entry = entries.get(i);
+            final JSONObject result = new JSONObject();
+            result.put("index", i);
+            result.put("description", entry.getDescription());
+            result.put("platformLead", entry.getPlatformLead());
+            results.add(result);
+
+            if (entry.getDescription() == null || entry.getDescription().isEmpty()) {
+                rejected(result, "Demand 'description' must exist.");
+                continue;
+            }
+            Party platformLead;
+            try {
+                platformLead = (entry.getPlatformLead() == null) ? null
+                        : rpcOps.wellKnownPartyFromX500Name(CordaX500Name.parse(entry.getPlatformLead()));
+            } catch (IllegalArgumentException e) {
+                platformLead = null;
+            }
+            if (platformLead == null) {
+                rejected(result, "Party named " + entry.getPlatformLead() + " cannot be found.");
+                continue;
+            }
+            indexesByPlatformLead.computeIfAbsent(platformLead, ignored -> new ArrayList<>()).add(i);
+        }
+
+        // Start every transaction first, then wait for them all.
+        final List<List<Integer>> batches = new ArrayList<>();
+        final List<CordaFuture<SignedTransaction>> outcomes = new ArrayList<>();
+        indexesByPlatformLead.forEach((platformLead, indexes) -> {
+            for (List<Integer> batch : Lists.partition(indexes, MAX_DEMANDS_PER_TRANSACTION)) {
+                final List<BatchDemandCreationFlow.DemandRequest> requests = batch.stream()
+                        .map(index -> new BatchDemandCreationFlow.DemandRequest(entries.get(index).getDescription(), platformLead))
+                        .collect(toList());
+                batches.add(batch);
+                try {
+                    outcomes.add(rpcOps.startFlowDynamic(BatchDemandCreationFlow.Initiator.class, requests).getReturnValue());
+                } catch (RuntimeException e) {
+                    logger.error(e.getMessage(), e);
+                    outcomes.add(null);
+                    batch.forEach(index -> failed(results.get(index), e));
+                }
+            }
+        });
+
+        //so far only the rejected entries and those whose flow could not start have a status
+        boolean allCreated = results.stream().noneMatch(result -> result.containsKey("status"));
+        for (int b = 0; b < batches.size(); b++) {
+            final List<Integer> batch = batches.get(b);
+            if (outcomes.get(b) == null) {
+                continue;
+            }
+            try {
+                final SignedTransaction stx = outcomes.get(b).get();
+                final List<DemandState> demands = stx.getTx().outputsOfType(DemandState.class);
+                for (int i = 0; i < batch.size(); i++) {
+                    final JSONObject result = results.get(batch.get(i));
+                    result.put("status", "created");
+                    result.put("linearId", demands.get(i).getLinearId().getId().toString());
+                    result.put("transactionId", stx.getId().toString());
+                }
+            } catch (Throwable ex) {
+                final Throwable cause = (ex instanceof ExecutionException && ex.getCause() != null) ? ex.getCause() : ex;
+                logger.error(cause.getMessage(), cause);
+                batch.forEach(index -> failed(results.get(index), cause));
+                allCreated = false;
+            }
+        }
+        return Response.status(allCreated ? CREATED : OK).entity(results).build();
+    }
+
+    private static void rejected(JSONObject result, String error) {
+        result.put("status", "rejected");
+        result.put("error", error);
+    }
+
+    private static void failed(JSONObject result, Throwable error) {
+        result.put("status", "failed");
+        result.put("error", error.getMessage());
+    }
+
     @POST
     @Path("update-demand")
     public Response updateDemand(
             @QueryParam("amount") String amount,
             @QueryParam("startDate") String startDate,
             @QueryParam("endDate") String endDate,
-            @QueryParam(value = "id") String id
+            @QueryParam(value = "id") String id,
+            @QueryParam("async") boolean async
            ) {
         int amt = Integer.parseInt(amount);
         logger.error("Starting validation");
@@ -182,6 +331,9 @@ public class DemandApi {
         try {
             FlowProgressHandle<SignedTransaction> flowHandle = rpcOps
                     .startTrackedFlowDynamic(DemandUpdateFlow.Initiator.class, linearId, startDateObj, endDateObj, amt);
+            if (async) {
+                return FlowsApi.acceptedResponse(flowStatusRegistry.track(DemandUpdateFlow.Initiator.class, flowHandle));
+            }
             flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s%n", evt));
 
             // The line below blocks and waits for the flow to return.
@@ -207,11 +359,30 @@ public class DemandApi {
     @Path("peers")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, List<CordaX500Name>> getPeers() {
-        List<NodeInfo> nodeInfoSnapshot = rpcOps.networkMapSnapshot();
-        return ImmutableMap.of("peers", nodeInfoSnapshot
-                .stream()
-                .map(node -> node.getLegalIdentities().get(0).getName())
-                .filter(name -> !name.equals(myLegalName) && !serviceNames.contains(name.getOrganisation()))
-                .collect(toList()));
+        return ImmutableMap.of("peers", networkMapView.getPeers());
+    }
+
+    /**
+     * One demand in the body of POST /api/demand/batch-create.
+     */
+    public static class DemandEntry {
+        private String description;
+        private String platformLead;
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public String getPlatformLead() {
+            return platformLead;
+        }
+
+        public void setPlatformLead(String platformLead) {
+            this.platformLead = platformLead;
+        }
     }
 }
@@ -0,0 +1,124 @@
+package com.example.api;
+
+import com.example.state.AllocationState;
+import com.example.state.DemandState;
+import com.example.state.ProjectState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import net.corda.client.jackson.JacksonSupport;
+import net.corda.core.messaging.CordaRPCOps;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+/**
+ * Server-sent events carrying vault deltas, so that the UI can keep its lists current without polling.
+ * This API is accessible from /api/events.
+ *
+ * Each open stream holds a webserver thread for as long as the client stays connected, so at most
+ * events.maxStreams (default 24) streams are served at once, read from a system property. Further clients get 503
+ * and fall back to reloading their lists.
+ */
+@Path("events")
+public class EventsApi {
+    public static final String TEXT_EVENT_STREAM = "text/event-stream";
+
+    static private final long HEARTBEAT_SECONDS = 15;
+    static private final long RETRY_MILLIS = 3000;
+
+    public static final String MAX_STREAMS_PROPERTY = "events.maxStreams";
+    public static final int DEFAULT_MAX_STREAMS = 24;
+
+    private final Map<String, VaultUpdateFeed<?>> feeds;
+    private final Semaphore streams = new Semaphore(Integer.getInteger(MAX_STREAMS_PROPERTY, DEFAULT_MAX_STREAMS));
+
+    public EventsApi(CordaRPCOps rpcOps) {
+        ObjectMapper mapper = JacksonSupport.createDefaultMapper(rpcOps);
+        this.feeds = ImmutableMap.of(
+                "demand", new VaultUpdateFeed<>(rpcOps, mapper, DemandState.class),
+                "project", new VaultUpdateFeed<>(rpcOps, mapper, ProjectState.class),
+                "allocation", new VaultUpdateFeed<>(rpcOps, mapper, AllocationState.class));
+    }
+
+    /**
+     * Streams an 'update' event, with the produced and consumed states, for every vault update of the given state
+     * type. A client resuming after a disconnect replays what it missed by sending the id of the last event it saw,
+     * either in the standard Last-Event-ID header or the lastEventId parameter. If those events are no longer
+     * available a 'reset' event is sent and the client should reload its list.
+     */
+    @GET
+    @Path("{type}")
+    @Produces(TEXT_EVENT_STREAM)
+    public Response streamUpdates(@PathParam("type") String type,
+                                  @HeaderParam("Last-Event-ID") String lastEventIdHeader,
+                                  @QueryParam("lastEventId") String lastEventIdParam) {
+        final VaultUpdateFeed<?> feed = feeds.get(type);
+        if (feed == null) {
+            return Response.status(NOT_FOUND).entity(String.format("Events are only available for %s.\n", feeds.keySet())).build();
+        }
+
+        final String lastEventId = (lastEventIdHeader != null) ? lastEventIdHeader : lastEventIdParam;
+        final Long lastSeenId;
+        try {
+            lastSeenId = (lastEventId == null || lastEventId.isEmpty()) ? null : Long.parseLong(lastEventId);
+        } catch (NumberFormatException e) {
+            return Response.status(BAD_REQUEST).entity("Last event id must be a number.\n").build();
+        }
+
+        if (!streams.tryAcquire()) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Too many event streams are open.\n")
+                    .header("Retry-After", RETRY_MILLIS / 1000).build();
+        }
+
+        StreamingOutput stream = output -> {
+            //the slot is given back however the stream ends, the client going away included
+            try {
+                final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                final BlockingQueue<VaultUpdateFeed.Event> queue = feed.subscribe(lastSeenId);
+                try {
+                    writer.write("retry: " + RETRY_MILLIS + "\n\n");
+                    writer.flush();
+                    while (true) {
+                        VaultUpdateFeed.Event event = queue.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                        if (event == null) {
+                            //comment line, lets us notice clients that have gone away
+                            writer.write(": keep-alive\n\n");
+                        } else if (event == VaultUpdateFeed.Event.OVERFLOW) {
+                            break;
+                        } else if (event == VaultUpdateFeed.Event.RESET) {
+                            writer.write("event: reset\ndata: {}\n\n");
+                        } else {
+                            writer.write("id: " + event.getId() + "\nevent: update\ndata: " + event.getData() + "\n\n");
+                        }
+                        writer.flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    feed.unsubscribe(queue);
+                }
+            } finally {
+                streams.release();
+            }
+        };
+        return Response.status(OK).entity(stream).header("Cache-Control", "no-cache").build();
+    }
+}
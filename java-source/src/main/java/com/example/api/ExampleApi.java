@@ -31,13 +31,15 @@ import static javax.ws.rs.core.Response.Status.CREATED;
 public class ExampleApi {
     private final CordaRPCOps rpcOps;
     private final CordaX500Name myLegalName;
+    private final FlowStatusRegistry flowStatusRegistry;
 
     private final List<String> serviceNames = ImmutableList.of("Controller", "Network Map Service");
 
     static private final Logger logger = LoggerFactory.getLogger(ExampleApi.class);
 
-    public ExampleApi(CordaRPCOps rpcOps) {
+    public ExampleApi(CordaRPCOps rpcOps, FlowStatusRegistry flowStatusRegistry) {
         this.rpcOps = rpcOps;
+        this.flowStatusRegistry = flowStatusRegistry;
         this.myLegalName = rpcOps.nodeInfo().getLegalIdentities().get(0).getName();
     }
 
@@ -86,11 +88,13 @@ public class ExampleApi {
      * This end-point takes a Party name parameter as part of the path. If the serving node can't find the other party
      * in its network map cache, it will return an HTTP bad request.
      *
-     * The flow is invoked asynchronously. It returns a future when the flow's call() method returns.
+     * The flow is invoked asynchronously. It returns a future when the flow's call() method returns. With async=true
+     * the end-point answers 202 Accepted straight away and the outcome can be polled from /api/flows/{id}.
      */
     @PUT
     @Path("create-iou")
-    public Response createIOU(@QueryParam("iouValue") int iouValue, @QueryParam("partyName") CordaX500Name partyName) throws InterruptedException, ExecutionException {
+    public Response createIOU(@QueryParam("iouValue") int iouValue, @QueryParam("partyName") CordaX500Name partyName,
+                              @QueryParam("async") boolean async) throws InterruptedException, ExecutionException {
         if (iouValue <= 0) {
             return Response.status(BAD_REQUEST).entity("Query parameter 'iouValue' must be non-negative.\n").build();
         }
@@ -106,6 +110,9 @@ public class ExampleApi {
         try {
             FlowProgressHandle<SignedTransaction> flowHandle = rpcOps
                     .startTrackedFlowDynamic(ExampleFlow.Initiator.class, iouValue, otherParty);
+            if (async) {
+                return FlowsApi.acceptedResponse(flowStatusRegistry.track(ExampleFlow.Initiator.class, flowHandle));
+            }
             flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s\n", evt));
 
             // The line below blocks and waits for the flow to return.
@@ -0,0 +1,150 @@
+package com.example.api;
+
+import com.example.state.AllocationState;
+import com.example.state.DemandState;
+import com.example.state.ProjectState;
+import com.example.util.PagingUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.corda.client.jackson.JacksonSupport;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Bulk export of the ledger history for reporting jobs.
+ *
+ * States are pulled from the vault one page at a time and written straight to the response as newline-delimited
+ * JSON, so the webserver never holds more than a single page in memory regardless of the size of the vault.
+ */
+@Path("export")
+public class ExportApi {
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final CordaRPCOps rpcOps;
+    private final ObjectMapper mapper;
+
+    static private final Logger logger = LoggerFactory.getLogger(ExportApi.class);
+
+    static private final Map<String, Class<? extends ContractState>> EXPORT_TYPES = ImmutableMap.of(
+            "project", ProjectState.class,
+            "allocation", AllocationState.class,
+            "demand", DemandState.class);
+
+    public ExportApi(CordaRPCOps rpcOps) {
+        this.rpcOps = rpcOps;
+        this.mapper = JacksonSupport.createDefaultMapper(rpcOps);
+    }
+
+    /**
+     * Streams every version of the Project, Allocation and Demand states, consumed ones included, one JSON
+     * object per line. The optional 'type' parameter restricts the export to a single state type.
+     */
+    @GET
+    @Path("history")
+    @Produces(APPLICATION_NDJSON)
+    public Response exportHistory(@QueryParam("type") String type) {
+        final List<Class<? extends ContractState>> stateTypes;
+        if (type == null) {
+            stateTypes = ImmutableList.copyOf(EXPORT_TYPES.values());
+        } else if (EXPORT_TYPES.containsKey(type)) {
+            stateTypes = ImmutableList.of(EXPORT_TYPES.get(type));
+        } else {
+            return Response.status(BAD_REQUEST).entity(String.format("Query parameter 'type' must be one of %s.\n", EXPORT_TYPES.keySet())).build();
+        }
+
+        StreamingOutput stream = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (Class<? extends ContractState> stateType : stateTypes) {
+                writeHistory(writer, stateType);
+            }
+            writer.flush();
+        };
+        return Response.status(OK).entity(stream).build();
+    }
+
+    /**
+     * Pages on (recordedTime, txhash, output index) rather than on a growing offset: each query asks only for states
+     * recorded at or after the last recorded time written, and the states already written at that exact time are
+     * skipped. The offset only grows while a whole page shares one recorded time.
+     */
+    private <T extends ContractState> void writeHistory(Writer writer, Class<T> stateType) throws IOException {
+        final int pageSize = PagingUtil.MAX_PAGE_SIZE;
+
+        Instant lastRecordedTime = null;
+        Set<StateRef> writtenAtLastRecordedTime = new HashSet<>();
+        int pageNumber = 1;
+        long exported = 0;
+        while (true) {
+            Vault.Page<T> page = rpcOps.vaultQueryBy(PagingUtil.recordedSince(Vault.StateStatus.ALL, lastRecordedTime),
+                    new PageSpecification(pageNumber, pageSize), PagingUtil.RECORDED_ORDER, stateType);
+            List<StateAndRef<T>> states = page.getStates();
+            List<Vault.StateMetadata> statesMetadata = page.getStatesMetadata();
+
+            for (int i = 0; i < states.size(); i++) {
+                Vault.StateMetadata metadata = statesMetadata.get(i);
+                if (metadata.getRecordedTime().equals(lastRecordedTime) && writtenAtLastRecordedTime.contains(metadata.getRef())) {
+                    continue;
+                }
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("type", stateType.getSimpleName());
+                record.put("status", metadata.getStatus().name());
+                record.put("recordedTime", metadata.getRecordedTime().toString());
+                record.put("consumedTime", (metadata.getConsumedTime() == null) ? null : metadata.getConsumedTime().toString());
+                record.put("stateAndRef", states.get(i));
+
+                writer.write(mapper.writeValueAsString(record));
+                writer.write('\n');
+                exported++;
+            }
+            //hand each page to the client before fetching the next one
+            writer.flush();
+
+            if (states.size() < pageSize) {
+                break;
+            }
+            Instant pageRecordedTime = statesMetadata.get(statesMetadata.size() - 1).getRecordedTime();
+            if (pageRecordedTime.equals(lastRecordedTime)) {
+                //the whole page shares one recorded time, so step past it within that time
+                pageNumber++;
+            } else {
+                lastRecordedTime = pageRecordedTime;
+                writtenAtLastRecordedTime = new HashSet<>();
+                pageNumber = 1;
+            }
+            for (Vault.StateMetadata metadata : statesMetadata) {
+                if (metadata.getRecordedTime().equals(lastRecordedTime)) {
+                    writtenAtLastRecordedTime.add(metadata.getRef());
+                }
+            }
+        }
+        logger.info("Exported {} {} states", exported, stateType.getSimpleName());
+    }
+}
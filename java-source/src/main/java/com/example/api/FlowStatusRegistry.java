@@ -0,0 +1,173 @@
+package com.example.api;
+
+import net.corda.core.messaging.FlowProgressHandle;
+import net.corda.core.transactions.SignedTransaction;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps track of flows that were started asynchronously by the web APIs, so that clients can poll for their
+ * outcome through GET /api/flows/{id} instead of holding a webserver thread until notarisation finishes.
+ *
+ * Only the most recent flows are remembered; the oldest entries are evicted once the limit is reached.
+ */
+public class FlowStatusRegistry {
+    public static final int MAX_TRACKED_FLOWS = 10000;
+
+    static private final Logger logger = LoggerFactory.getLogger(FlowStatusRegistry.class);
+
+    private final Map<String, FlowStatus> flows = new LinkedHashMap<String, FlowStatus>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FlowStatus> eldest) {
+            return size() > MAX_TRACKED_FLOWS;
+        }
+    };
+
+    /**
+     * Starts following the given flow and returns the id under which its status can be looked up.
+     */
+    public String track(Class<?> flowClass, FlowProgressHandle<SignedTransaction> flowHandle) {
+        final String id = flowHandle.getId().getUuid().toString();
+        final FlowStatus status = register(new FlowStatus(id, flowClass.getName(), FlowStatus.RUNNING));
+        status.started(id);
+        followProgress(status, flowHandle);
+
+        flowHandle.getReturnValue().then(future -> {
+            try {
+                status.completed(future.get().getId().toString());
+            } catch (ExecutionException e) {
+                failed(status, (e.getCause() == null) ? e : e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                status.failed(e.getMessage());
+            } finally {
+                flowHandle.close();
+            }
+            return null;
+        });
+        return id;
+    }
+
+    /**
+     * Registers a request waiting in a ProjectFlowQueue. It is reported as queued until started is called with its
+     * flow, and the queue reports the outcome through finished.
+     */
+    public FlowStatus trackQueued(Class<?> flowClass) {
+        return register(new FlowStatus(UUID.randomUUID().toString(), flowClass.getName(), FlowStatus.QUEUED));
+    }
+
+    public void started(FlowStatus status, FlowProgressHandle<SignedTransaction> flowHandle) {
+        status.started(flowHandle.getId().getUuid().toString());
+        followProgress(status, flowHandle);
+    }
+
+    public void finished(FlowStatus status, SignedTransaction stx, Throwable error) {
+        if (error != null) {
+            failed(status, (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error);
+        } else {
+            status.completed(stx.getId().toString());
+        }
+    }
+
+    private FlowStatus register(FlowStatus status) {
+        synchronized (flows) {
+            flows.put(status.id, status);
+        }
+        return status;
+    }
+
+    private void followProgress(FlowStatus status, FlowProgressHandle<SignedTransaction> flowHandle) {
+        flowHandle.getProgress().subscribe(status::setCurrentStep, error -> logger.warn("Lost progress of flow {}", status.id, error));
+    }
+
+    private void failed(FlowStatus status, Throwable cause) {
+        logger.error(cause.getMessage(), cause);
+        status.failed(cause.getMessage());
+    }
+
+    public FlowStatus get(String id) {
+        synchronized (flows) {
+            return flows.get(id);
+        }
+    }
+
+    public static class FlowStatus {
+        public static final String QUEUED = "queued";
+        public static final String RUNNING = "running";
+        public static final String COMPLETED = "completed";
+        public static final String FAILED = "failed";
+
+        private final String id;
+        private final String flowClass;
+        private final Instant submittedAt;
+        private volatile String status;
+        private volatile String flowId;
+        private volatile Instant startedAt;
+        private volatile String currentStep;
+        private volatile String transactionId;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        FlowStatus(String id, String flowClass, String status) {
+            this.id = id;
+            this.flowClass = flowClass;
+            this.status = status;
+            this.submittedAt = Instant.now();
+        }
+
+        void started(String flowId) {
+            this.flowId = flowId;
+            this.startedAt = Instant.now();
+            if (QUEUED.equals(status)) {
+                this.status = RUNNING;
+            }
+        }
+
+        void setCurrentStep(String currentStep) {
+            this.currentStep = currentStep;
+        }
+
+        void completed(String transactionId) {
+            this.transactionId = transactionId;
+            this.finishedAt = Instant.now();
+            this.status = COMPLETED;
+        }
+
+        void failed(String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+            this.status = FAILED;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public JSONObject toJson() {
+            final JSONObject jsonObject = new JSONObject();
+            jsonObject.put("id", id);
+            jsonObject.put("flow", flowClass);
+            jsonObject.put("flowId", flowId);
+            jsonObject.put("status", status);
+            jsonObject.put("currentStep", currentStep);
+            jsonObject.put("transactionId", transactionId);
+            jsonObject.put("error", error);
+            jsonObject.put("submittedAt", submittedAt.toString());
+            jsonObject.put("startedAt", (startedAt == null) ? null : startedAt.toString());
+            jsonObject.put("finishedAt", (finishedAt == null) ? null : finishedAt.toString());
+            return jsonObject;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.api;
+
+import com.example.flow.FlowLatencyFlow;
+import com.example.util.ResponseUtil;
+import net.corda.core.messaging.CordaRPCOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static javax.ws.rs.core.Response.Status.ACCEPTED;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Reports on flows submitted with async=true, on the per-project flow queue and on the node's flow step latencies.
+ * This API is accessible from /api/flows.
+ */
+@Path("flows")
+public class FlowsApi {
+    private final CordaRPCOps rpcOps;
+    private final FlowStatusRegistry flowStatusRegistry;
+    private final ProjectFlowQueue flowQueue;
+
+    static private final Logger logger = LoggerFactory.getLogger(FlowsApi.class);
+
+    public FlowsApi(CordaRPCOps rpcOps, FlowStatusRegistry flowStatusRegistry, ProjectFlowQueue flowQueue) {
+        this.rpcOps = rpcOps;
+        this.flowStatusRegistry = flowStatusRegistry;
+        this.flowQueue = flowQueue;
+    }
+
+    /**
+     * The 202 response handed back by the other APIs when a flow has been started with async=true.
+     */
+    public static Response acceptedResponse(String flowId) {
+        final String msg = String.format("Flow %s has been started.\nPoll /api/flows/%s for its outcome.", flowId, flowId);
+        return Response.status(ACCEPTED)
+                .location(URI.create("/api/flows/" + flowId))
+                .entity(ResponseUtil.generateAcceptedJsonObject(msg, flowId))
+                .build();
+    }
+
+    /**
+     * Returns the throughput and queue depth of the per-project flow queue.
+     */
+    @GET
+    @Path("queue")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getQueueMetrics() {
+        return Response.status(OK).entity(flowQueue.metrics()).build();
+    }
+
+    /**
+     * Returns the count, mean, p50, p90, p99 and max time in microseconds spent by this node's flows in each
+     * progress tracker step, per flow class, including the acceptor side of flows started by other nodes.
+     */
+    @GET
+    @Path("latency")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStepLatencies() {
+        try {
+            final List<Map<String, Object>> latencies = rpcOps.startFlowDynamic(FlowLatencyFlow.class).getReturnValue().get();
+            return Response.status(OK).entity(latencies).build();
+        } catch (Throwable ex) {
+            logger.error(ex.getMessage(), ex);
+            return Response.status(INTERNAL_SERVER_ERROR).entity(ResponseUtil.generateErrorJsonObject(ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * Returns the current progress tracker step of the flow, or its transaction id or error once it has finished.
+     */
+    @GET
+    @Path("{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFlowStatus(@PathParam("id") String id) {
+        FlowStatusRegistry.FlowStatus status = flowStatusRegistry.get(id);
+        if (status == null) {
+            return Response.status(NOT_FOUND).entity(ResponseUtil.generateErrorJsonObject(
+                    String.format("Flow with id %s is not known to this webserver.", id))).build();
+        }
+        return Response.status(OK).entity(status.toJson()).build();
+    }
+}
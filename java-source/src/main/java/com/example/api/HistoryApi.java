@@ -0,0 +1,96 @@
+package com.example.api;
+
+import com.example.flow.ArchiveFlow;
+import com.example.flow.HistoryFlow;
+import com.example.service.ArchiveService;
+import com.example.util.ResponseUtil;
+import com.google.common.collect.ImmutableMap;
+import net.corda.core.messaging.CordaRPCOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Version history of projects, allocations and demands across the live and archive tiers.
+ * This API is accessible from /api/history.
+ */
+@Path("history")
+public class HistoryApi {
+    private final CordaRPCOps rpcOps;
+
+    static private final Logger logger = LoggerFactory.getLogger(HistoryApi.class);
+
+    static private final Map<String, ArchiveService.StateTable> HISTORY_TYPES = ImmutableMap.of(
+            "project", ArchiveService.StateTable.PROJECT,
+            "allocation", ArchiveService.StateTable.ALLOCATION,
+            "demand", ArchiveService.StateTable.DEMAND);
+
+    public HistoryApi(CordaRPCOps rpcOps) {
+        this.rpcOps = rpcOps;
+    }
+
+    /**
+     * Returns every version of the project, allocation or demand with the linear id, oldest first. Each version
+     * carries its tier, "live" or "archive", along with its recorded and consumed times.
+     */
+    @GET
+    @Path("{type}/{linearId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getHistory(@PathParam("type") String type, @PathParam("linearId") String linearId) {
+        final ArchiveService.StateTable table = HISTORY_TYPES.get(type);
+        if (table == null) {
+            return Response.status(BAD_REQUEST).entity(String.format("Path parameter 'type' must be one of %s.\n", HISTORY_TYPES.keySet())).build();
+        }
+        final UUID id;
+        try {
+            id = UUID.fromString(linearId);
+        } catch (IllegalArgumentException e) {
+            return Response.status(BAD_REQUEST).entity("Path parameter 'linearId' must be a UUID.\n").build();
+        }
+
+        try {
+            final List<Map<String, Object>> versions = rpcOps.startFlowDynamic(HistoryFlow.class, table, id).getReturnValue().get();
+            return Response.status(OK).entity(versions).build();
+        } catch (Throwable ex) {
+            logger.error(ex.getMessage(), ex);
+            return Response.status(INTERNAL_SERVER_ERROR).entity(ResponseUtil.generateErrorJsonObject(ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * Archives versions consumed more than 'olderThanDays' days ago straight away, rather than waiting for the
+     * node's scheduled run. At most ArchiveService.BATCH_SIZE versions are moved per type and call.
+     */
+    @POST
+    @Path("archive")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response archive(@QueryParam("olderThanDays") Integer olderThanDays) {
+        final int days = (olderThanDays == null) ? ArchiveService.DEFAULT_AGE_DAYS : olderThanDays;
+        if (days < 0) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'olderThanDays' must not be negative.\n").build();
+        }
+
+        try {
+            final Map<String, Integer> archived = rpcOps.startFlowDynamic(ArchiveFlow.class, days).getReturnValue().get();
+            return Response.status(OK).entity(archived).build();
+        } catch (Throwable ex) {
+            logger.error(ex.getMessage(), ex);
+            return Response.status(INTERNAL_SERVER_ERROR).entity(ResponseUtil.generateErrorJsonObject(ex.getMessage())).build();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.api;
+
+import com.example.util.RoleDirectory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.NetworkMapCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The webserver's copy of the network map, kept current from networkMapFeed so that the peer lists do not cost an
+ * RPC call per request. The lists are recomputed only when the network map changes.
+ *
+ * Our own node, the notaries and the network services are never listed; platform leads and delivery teams are
+ * the parties given those roles in the RoleDirectory.
+ */
+public class NetworkMapView {
+    static private final Logger logger = LoggerFactory.getLogger(NetworkMapView.class);
+
+    private static final List<String> SERVICE_NAMES = ImmutableList.of("Controller", "Network Map Service");
+
+    private final CordaX500Name myLegalName;
+    private final Set<CordaX500Name> notaryNames;
+    private final RoleDirectory roleDirectory = RoleDirectory.load();
+    private final Map<CordaX500Name, NodeInfo> nodes = new LinkedHashMap<>();
+    private final Subscription subscription;
+
+    private volatile List<CordaX500Name> peers = ImmutableList.of();
+    private volatile List<CordaX500Name> platformLeads = ImmutableList.of();
+    private volatile List<CordaX500Name> deliveryTeams = ImmutableList.of();
+
+    public NetworkMapView(CordaRPCOps rpcOps) {
+        this.myLegalName = rpcOps.nodeInfo().getLegalIdentities().get(0).getName();
+        this.notaryNames = ImmutableSet.copyOf(rpcOps.notaryIdentities().stream().map(Party::getName).collect(toList()));
+
+        final DataFeed<List<NodeInfo>, NetworkMapCache.MapChange> feed = rpcOps.networkMapFeed();
+        synchronized (nodes) {
+            feed.getSnapshot().forEach(node -> nodes.put(nameOf(node), node));
+            recompute();
+        }
+        this.subscription = feed.getUpdates().subscribe(this::onChange,
+                error -> logger.error("Network map updates stopped", error));
+    }
+
+    private void onChange(NetworkMapCache.MapChange change) {
+        synchronized (nodes) {
+            if (change instanceof NetworkMapCache.MapChange.Removed) {
+                nodes.remove(nameOf(change.getNode()));
+            } else {
+                if (change instanceof NetworkMapCache.MapChange.Modified) {
+                    nodes.remove(nameOf(((NetworkMapCache.MapChange.Modified) change).getPreviousNode()));
+                }
+                nodes.put(nameOf(change.getNode()), change.getNode());
+            }
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        final List<CordaX500Name> names = nodes.keySet().stream()
+                .filter(name -> !name.equals(myLegalName)
+                        && !notaryNames.contains(name)
+                        && !SERVICE_NAMES.contains(name.getOrganisation()))
+                .collect(toList());
+        peers = ImmutableList.copyOf(names);
+        platformLeads = ImmutableList.copyOf(names.stream()
+                .filter(name -> roleDirectory.hasRole(name, RoleDirectory.Role.PLATFORM_LEAD)).collect(toList()));
+        deliveryTeams = ImmutableList.copyOf(names.stream()
+                .filter(name -> roleDirectory.hasRole(name, RoleDirectory.Role.DELIVERY_TEAM)).collect(toList()));
+    }
+
+    private static CordaX500Name nameOf(NodeInfo node) {
+        return node.getLegalIdentities().get(0).getName();
+    }
+
+    public List<CordaX500Name> getPeers() {
+        return peers;
+    }
+
+    public List<CordaX500Name> getPlatformLeads() {
+        return platformLeads;
+    }
+
+    public List<CordaX500Name> getDeliveryTeams() {
+        return deliveryTeams;
+    }
+
+    public void close() {
+        subscription.unsubscribe();
+    }
+}
@@ -2,9 +2,15 @@ package com.example.api;
 
 import com.example.flow.AllocationFlow;
 import com.example.flow.AllocationUpdateFlow;
+import com.example.flow.BulkAllocationFlow;
+import com.example.flow.ProjectsByDeliveryTeamFlow;
+import com.example.schema.AllocationSchemaV1;
+import com.example.schema.ProjectSchemaV1;
 import com.example.state.AllocationState;
 import com.example.state.ProjectState;
+import com.example.util.PagingUtil;
 import com.example.util.ResponseUtil;
+import com.example.util.StateViews;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import net.corda.core.contracts.StateAndRef;
@@ -13,9 +19,10 @@ import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.messaging.FlowProgressHandle;
-import net.corda.core.node.NodeInfo;
 import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
 import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.SortAttribute;
 import net.corda.core.transactions.SignedTransaction;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -24,14 +31,19 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.Response.Status.*;
 
 /**
@@ -41,16 +53,34 @@ import static javax.ws.rs.core.Response.Status.*;
 public class ProjectApi {
     private final CordaRPCOps rpcOps;
     private final CordaX500Name myLegalName;
+    private final FlowStatusRegistry flowStatusRegistry;
+    private final ReadModel readModel;
+    private final NetworkMapView networkMapView;
+    private final ProjectFlowQueue flowQueue;
+    private final AllocationBatcher allocationBatcher;
 
-    private final List<String> serviceNames = ImmutableList.of("Controller", "Network Map Service");
+    static private final Logger logger = LoggerFactory.getLogger(ProjectApi.class);
 
-    private final String platformLeadServiceNamePrefix = "PL";
-    private final String deliveryTeamServiceNamePrefix = "DL";
+    static private final Map<String, SortAttribute> PROJECT_SORT_COLUMNS = ImmutableMap.of(
+            PagingUtil.RECORDED_TIME, PagingUtil.RECORDED_TIME_ATTRIBUTE,
+            "projectCode", new SortAttribute.Custom(ProjectSchemaV1.PersistentProject.class, "projectCode"),
+            "budget", new SortAttribute.Custom(ProjectSchemaV1.PersistentProject.class, "budget"),
+            "startDate", new SortAttribute.Custom(ProjectSchemaV1.PersistentProject.class, "startDate"));
 
-    static private final Logger logger = LoggerFactory.getLogger(ProjectApi.class);
+    static private final Map<String, SortAttribute> ALLOCATION_SORT_COLUMNS = ImmutableMap.of(
+            PagingUtil.RECORDED_TIME, PagingUtil.RECORDED_TIME_ATTRIBUTE,
+            "projectCode", new SortAttribute.Custom(AllocationSchemaV1.PersistentAllocation.class, "projectCode"),
+            "budget", new SortAttribute.Custom(AllocationSchemaV1.PersistentAllocation.class, "allocationAmount"),
+            "startDate", new SortAttribute.Custom(AllocationSchemaV1.PersistentAllocation.class, "startDate"));
 
-    public ProjectApi(CordaRPCOps rpcOps) {
+    public ProjectApi(CordaRPCOps rpcOps, FlowStatusRegistry flowStatusRegistry, ReadModel readModel, NetworkMapView networkMapView,
+                      ProjectFlowQueue flowQueue, AllocationBatcher allocationBatcher) {
         this.rpcOps = rpcOps;
+        this.flowStatusRegistry = flowStatusRegistry;
+        this.readModel = readModel;
+        this.networkMapView = networkMapView;
+        this.flowQueue = flowQueue;
+        this.allocationBatcher = allocationBatcher;
         this.myLegalName = rpcOps.nodeInfo().getLegalIdentities().get(0).getName();
     }
 
@@ -65,36 +95,61 @@ public class ProjectApi {
     }
 
     /**
-     * Displays all Project states that exist in the node's vault.
+     * Displays all unconsumed Project states in the node's vault, from the read model once it has loaded.
+     * With compact=true, or fields=a,b,c, the compact views of the states are returned instead.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<ProjectState>> getProjects() {
-        return rpcOps.vaultQuery(ProjectState.class).getStates();
+    public Response getProjects(@QueryParam("compact") boolean compact, @QueryParam("fields") String fields) {
+        final List<StateAndRef<ProjectState>> projects = readModel.getProjects().isReady()
+                ? readModel.getProjects().getAll()
+                : rpcOps.vaultQuery(ProjectState.class).getStates();
+        return StateViews.listResponse(projects, ProjectState.class, compact, fields);
     }
 
     @GET
     @Path("code/{projectCode}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getProjectByProjectCode(@PathParam("projectCode") String projectCode) {
-        QueryCriteria criteria = new QueryCriteria.LinearStateQueryCriteria(
-                null, null, Vault.StateStatus.UNCONSUMED, null);
-        List<StateAndRef<ProjectState>> projects = rpcOps.vaultQueryByCriteria(criteria, ProjectState.class).getStates();
-        for(StateAndRef<ProjectState> projectStateStateAndRef : projects){
-            ProjectState projectState = projectStateStateAndRef.getState().getData();
-            if(projectCode.equals(projectState.getProjectCode())){
-                return Response.status(OK).entity(projectStateStateAndRef).build();
+        if (readModel.getProjects().isReady()) {
+            List<StateAndRef<ProjectState>> projects = readModel.getProjects().getBy(ReadModel.PROJECT_CODE, projectCode);
+            if(!projects.isEmpty()){
+                return Response.status(OK).entity(projects.get(0)).build();
             }
+            return Response.status(NOT_FOUND).entity("Project with specified project code not found.\n").build();
+        }
+
+        //until the read model has loaded, query the indexed projectCode column instead of scanning every unconsumed linear state
+        final List<StateAndRef<ProjectState>> projects;
+        try {
+            projects = rpcOps.vaultQueryByCriteria(projectCodeCriteria(projectCode), ProjectState.class).getStates();
+        } catch (IllegalStateException e) {
+            logger.error(e.getMessage(), e);
+            return Response.status(INTERNAL_SERVER_ERROR).entity("Project schema does not define a project code.\n").build();
+        }
+
+        if(!projects.isEmpty()){
+            return Response.status(OK).entity(projects.get(0)).build();
         }
         return Response.status(NOT_FOUND).entity("Project with specified project code not found.\n").build();
     }
 
+    /**
+     * Displays one page of every Project state version in the node's vault. The cursor for the following page,
+     * if any, is returned in the X-Next-Cursor header.
+     */
     @GET
     @Path("all-projects")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<ProjectState>> getAllProjects() {
+    public Response getAllProjects(@QueryParam("pageSize") Integer pageSize,
+                                   @QueryParam("cursor") String cursor,
+                                   @QueryParam("sort") String sortColumn,
+                                   @QueryParam("order") String order,
+                                   @QueryParam("compact") boolean compact,
+                                   @QueryParam("fields") String fields) {
         QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
-        return rpcOps.vaultQueryByCriteria(criteria, ProjectState.class).getStates();
+        return PagingUtil.queryPage(rpcOps, criteria, ProjectState.class, PROJECT_SORT_COLUMNS,
+                pageSize, cursor, sortColumn, order, compact, fields);
     }
 
     @GET
@@ -112,30 +167,129 @@ public class ProjectApi {
     @Produces(MediaType.APPLICATION_JSON)
     public List<StateAndRef<ProjectState>> getProjectById(@QueryParam("id") String id) {
         UniqueIdentifier projectLinearId = UniqueIdentifier.Companion.fromString(id);
+        if (readModel.getProjects().isReady()) {
+            StateAndRef<ProjectState> project = readModel.getProjects().getByLinearId(projectLinearId);
+            return (project == null) ? ImmutableList.of() : ImmutableList.of(project);
+        }
         QueryCriteria criteria = new QueryCriteria.LinearStateQueryCriteria(
                 null, ImmutableList.of(projectLinearId), Vault.StateStatus.UNCONSUMED, null);
         return rpcOps.vaultQueryByCriteria(criteria, ProjectState.class).getStates();
     }
 
     /**
-     * Displays all Allocation states that exist in the node's vault.
+     * Displays the unconsumed Project states led by the given platform lead, from the read model.
+     */
+    @GET
+    @Path("by-platform-lead")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getProjectsByPlatformLead(@QueryParam("party") CordaX500Name partyName,
+                                              @QueryParam("compact") boolean compact,
+                                              @QueryParam("fields") String fields) {
+        if (partyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'party' missing or has wrong format.\n").build();
+        }
+        if (!readModel.getProjects().isReady()) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Read model is still loading.\n").build();
+        }
+        return StateViews.listResponse(readModel.getProjects().getBy(ReadModel.PLATFORM_LEAD, partyName.toString()),
+                ProjectState.class, compact, fields);
+    }
+
+    /**
+     * Displays the unconsumed Project states the given delivery team works on, found by ProjectsByDeliveryTeamFlow
+     * through the indexed ProjectSchemaV2 tables.
+     */
+    @GET
+    @Path("by-delivery-team")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getProjectsByDeliveryTeam(@QueryParam("party") CordaX500Name partyName,
+                                              @QueryParam("compact") boolean compact,
+                                              @QueryParam("fields") String fields) {
+        if (partyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'party' missing or has wrong format.\n").build();
+        }
+        final Party deliveryTeam = rpcOps.wellKnownPartyFromX500Name(partyName);
+        if (deliveryTeam == null) {
+            return Response.status(BAD_REQUEST).entity("Party named " + partyName + " cannot be found.\n").build();
+        }
+
+        try {
+            final List<StateAndRef<ProjectState>> projects = rpcOps.startFlowDynamic(ProjectsByDeliveryTeamFlow.class, deliveryTeam)
+                    .getReturnValue().get();
+            return StateViews.listResponse(projects, ProjectState.class, compact, fields);
+        } catch (Throwable ex) {
+            logger.error(ex.getMessage(), ex);
+            return Response.status(INTERNAL_SERVER_ERROR).entity(ResponseUtil.generateErrorJsonObject(ex.getMessage())).build();
+        }
+    }
+
+    /**
+     * Displays the unconsumed Allocation states of the given delivery team, from the read model.
+     */
+    @GET
+    @Path("allocations/by-delivery-team")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllocationsByDeliveryTeam(@QueryParam("party") CordaX500Name partyName,
+                                                 @QueryParam("compact") boolean compact,
+                                                 @QueryParam("fields") String fields) {
+        if (partyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'party' missing or has wrong format.\n").build();
+        }
+        if (!readModel.getAllocations().isReady()) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Read model is still loading.\n").build();
+        }
+        return StateViews.listResponse(readModel.getAllocations().getBy(ReadModel.DELIVERY_TEAM, partyName.toString()),
+                AllocationState.class, compact, fields);
+    }
+
+    /**
+     * Displays the unconsumed Allocation states of the given project, from the read model.
+     */
+    @GET
+    @Path("allocations/by-project-code/{projectCode}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAllocationsByProjectCode(@PathParam("projectCode") String projectCode,
+                                                @QueryParam("compact") boolean compact,
+                                                @QueryParam("fields") String fields) {
+        if (!readModel.getAllocations().isReady()) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Read model is still loading.\n").build();
+        }
+        return StateViews.listResponse(readModel.getAllocations().getBy(ReadModel.PROJECT_CODE, projectCode),
+                AllocationState.class, compact, fields);
+    }
+
+    /**
+     * Displays one page of the unconsumed Allocation states in the node's vault.
      */
     @GET
     @Path("allocations")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<AllocationState>> getAllocations() {
-        return rpcOps.vaultQuery(AllocationState.class).getStates();
+    public Response getAllocations(@QueryParam("pageSize") Integer pageSize,
+                                   @QueryParam("cursor") String cursor,
+                                   @QueryParam("sort") String sortColumn,
+                                   @QueryParam("order") String order,
+                                   @QueryParam("compact") boolean compact,
+                                   @QueryParam("fields") String fields) {
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        return PagingUtil.queryPage(rpcOps, criteria, AllocationState.class, ALLOCATION_SORT_COLUMNS,
+                pageSize, cursor, sortColumn, order, compact, fields);
     }
 
     /**
-     * Displays all Allocation states that exist in the node's vault.
+     * Displays one page of every Allocation state version in the node's vault.
      */
     @GET
     @Path("all-allocations")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<AllocationState>> getAllAllocations() {
-        QueryCriteria.VaultQueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
-        return rpcOps.vaultQueryByCriteria(criteria, AllocationState.class).getStates();
+    public Response getAllAllocations(@QueryParam("pageSize") Integer pageSize,
+                                      @QueryParam("cursor") String cursor,
+                                      @QueryParam("sort") String sortColumn,
+                                      @QueryParam("order") String order,
+                                      @QueryParam("compact") boolean compact,
+                                      @QueryParam("fields") String fields) {
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
+        return PagingUtil.queryPage(rpcOps, criteria, AllocationState.class, ALLOCATION_SORT_COLUMNS,
+                pageSize, cursor, sortColumn, order, compact, fields);
     }
 
     /**
@@ -146,12 +300,7 @@ public class ProjectApi {
     @Path("deliveryTeams")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, List<CordaX500Name>> getDeliveryTeams() {
-        List<NodeInfo> nodeInfoSnapshot = rpcOps.networkMapSnapshot();
-        return ImmutableMap.of("deliveryTeams", nodeInfoSnapshot
-                .stream()
-                .map(node -> node.getLegalIdentities().get(0).getName())
-                .filter(name -> !name.equals(myLegalName) && name.getOrganisation().startsWith(deliveryTeamServiceNamePrefix))
-                .collect(toList()));
+        return ImmutableMap.of("deliveryTeams", networkMapView.getDeliveryTeams());
     }
 
     @POST
@@ -162,7 +311,8 @@ public class ProjectApi {
             @QueryParam("startDate") String startDate,
             @QueryParam("endDate") String endDate,
             @QueryParam("deliveryTeam") CordaX500Name partyName,
-            @QueryParam("projectId") String projectId
+            @QueryParam("projectId") String projectId,
+            @QueryParam("async") boolean async
     ){
         int amt = Integer.parseInt(amount);
         if (amt  < 0 ) {
@@ -202,26 +352,70 @@ public class ProjectApi {
         logger.error("Linear ID");
         UniqueIdentifier projectLinearId = UniqueIdentifier.Companion.fromString(projectId);
 
-        try {
-            FlowProgressHandle<SignedTransaction> flowHandle = rpcOps
-                    .startTrackedFlowDynamic(AllocationFlow.Initiator.class, projectLinearId, deliveryTeam, amt, startDateObj, endDateObj);
-            flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s%n", evt));
+        //allocations arriving together for the same project are merged into one transaction by the batcher
+        final BulkAllocationFlow.AllocationRequest request = new BulkAllocationFlow.AllocationRequest(deliveryTeam, amt, startDateObj, endDateObj);
+        return runQueued(AllocationFlow.Initiator.class,
+                onStarted -> allocationBatcher.submit(projectLinearId, request, onStarted),
+                async, "Allocation has been created.");
+    }
 
-            // The line below blocks and waits for the flow to return.
-            final SignedTransaction result = flowHandle
-                    .getReturnValue()
-                    .get();
+    /**
+     * Allocates the project to several delivery teams in a single transaction. The body is a JSON array of
+     * {deliveryTeam, amount, startDate, endDate} entries, with the dates in dd/MM/yyyy format.
+     */
+    @POST
+    @Path("bulk-allocate")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response bulkAllocate(
+            @QueryParam("projectId") String projectId,
+            @QueryParam("async") boolean async,
+            List<AllocationEntry> entries
+    ){
+        if (projectId == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'projectId' missing.\n").build();
+        }
+        if (entries == null || entries.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity("At least one allocation must be given.\n").build();
+        }
 
-            final String msg = String.format("Transaction id %s committed to ledger.\nAllocation has been created.", result.getId());
-            final JSONObject returnJsonObj = ResponseUtil.generateSuccessJsonObject(msg);
-            return Response.status(CREATED).entity(returnJsonObj).build();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        final List<BulkAllocationFlow.AllocationRequest> allocationRequests = new ArrayList<>();
+        for (AllocationEntry entry : entries) {
+            if (entry.getAmount() < 0) {
+                return Response.status(BAD_REQUEST).entity("Allocation 'amount' must be greater than zero.\n").build();
+            }
 
-        } catch (Throwable ex) {
-            final String msg = ex.getMessage();
-            logger.error(ex.getMessage(), ex);
-            final JSONObject returnJsonObj = ResponseUtil.generateErrorJsonObject(msg);
-            return Response.status(BAD_REQUEST).entity(returnJsonObj).build();
+            LocalDateTime startDateObj;
+            LocalDateTime endDateObj;
+            try{
+                startDateObj = LocalDateTime.of(LocalDate.parse(entry.getStartDate(), formatter), LocalDateTime.MIN.toLocalTime());
+                endDateObj = LocalDateTime.of(LocalDate.parse(entry.getEndDate(), formatter), LocalDateTime.MIN.toLocalTime());
+            }catch(DateTimeParseException | NullPointerException e){
+                return Response.status(BAD_REQUEST).entity("Allocation 'startDate' or 'endDate' missing or has wrong format.\n").build();
+            }
+
+            Party deliveryTeam;
+            try{
+                deliveryTeam = (entry.getDeliveryTeam() == null) ? null
+                        : rpcOps.wellKnownPartyFromX500Name(CordaX500Name.parse(entry.getDeliveryTeam()));
+            }catch(IllegalArgumentException e){
+                return Response.status(BAD_REQUEST).entity("Allocation 'deliveryTeam' " + entry.getDeliveryTeam() + " is not a valid X500 name.\n").build();
+            }
+            if (deliveryTeam == null) {
+                return Response.status(BAD_REQUEST).entity("Party named " + entry.getDeliveryTeam() + " cannot be found.\n").build();
+            }
+
+            allocationRequests.add(new BulkAllocationFlow.AllocationRequest(deliveryTeam, entry.getAmount(), startDateObj, endDateObj));
         }
+
+        UniqueIdentifier projectLinearId = UniqueIdentifier.Companion.fromString(projectId);
+
+        return runQueued(BulkAllocationFlow.Initiator.class,
+                onStarted -> flowQueue.submit(projectLinearId,
+                        () -> rpcOps.startTrackedFlowDynamic(BulkAllocationFlow.Initiator.class, projectLinearId, allocationRequests),
+                        onStarted),
+                async, String.format("%d allocations have been created.", allocationRequests.size()));
     }
 
     @POST
@@ -231,7 +425,8 @@ public class ProjectApi {
             @QueryParam("amount") String amount,
             @QueryParam("startDate") String startDate,
             @QueryParam("endDate") String endDate,
-            @QueryParam("allocationId") String allocationId
+            @QueryParam("allocationId") String allocationId,
+            @QueryParam("async") boolean async
     ){
         int amt = Integer.parseInt(amount);
         logger.error("Starting validation");
@@ -267,27 +462,130 @@ public class ProjectApi {
         logger.error("Allocation ID");
         UniqueIdentifier allocationLinearId = UniqueIdentifier.Companion.fromString(allocationId);
 
+        //the update consumes the allocation's project too, so it queues behind the other flows on that project
+        final UniqueIdentifier projectLinearId = projectLinearIdOfAllocation(allocationLinearId);
+        if (projectLinearId == null) {
+            return Response.status(BAD_REQUEST).entity(String.format("Allocation with id %s or its project not found.\n", allocationLinearId)).build();
+        }
+
         logger.error("Start Flow");
-        try {
-            FlowProgressHandle<SignedTransaction> flowHandle = rpcOps
-                    .startTrackedFlowDynamic(AllocationUpdateFlow.Initiator.class, allocationLinearId, amt, startDateObj, endDateObj);
-            flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s%n", evt));
+        return runQueued(AllocationUpdateFlow.Initiator.class,
+                onStarted -> flowQueue.submit(projectLinearId,
+                        () -> rpcOps.startTrackedFlowDynamic(AllocationUpdateFlow.Initiator.class, allocationLinearId, amt, startDateObj, endDateObj),
+                        onStarted),
+                async, "Allocation has been successfully updated.");
+    }
 
+    /**
+     * Runs a flow that consumes a project's state through the project flow queue, or the allocation batcher in front
+     * of it, so that it does not race other flows on the same project to the notary. submit is given the callback to
+     * run once the flow has started. With async the request is answered with 202 straight away, otherwise this blocks
+     * until the flow has finished.
+     */
+    private Response runQueued(Class<?> flowClass,
+                               Function<Consumer<FlowProgressHandle<SignedTransaction>>, CompletableFuture<SignedTransaction>> submit,
+                               boolean async, String successMessage) {
+        if (async) {
+            final FlowStatusRegistry.FlowStatus status = flowStatusRegistry.trackQueued(flowClass);
+            submit.apply(flowHandle -> flowStatusRegistry.started(status, flowHandle))
+                    .whenComplete((stx, error) -> flowStatusRegistry.finished(status, stx, error));
+            return FlowsApi.acceptedResponse(status.getId());
+        }
+
+        try {
             // The line below blocks and waits for the flow to return.
-            final SignedTransaction result = flowHandle
-                    .getReturnValue()
+            final SignedTransaction result = submit.apply(
+                    flowHandle -> flowHandle.getProgress().subscribe(evt -> System.out.printf(">> %s%n", evt)))
                     .get();
 
-            final String msg = String.format("Transaction id %s committed to ledger.\nAllocation has been successfully updated.", result.getId());
+            final String msg = String.format("Transaction id %s committed to ledger.\n%s", result.getId(), successMessage);
             final JSONObject returnJsonObj = ResponseUtil.generateSuccessJsonObject(msg);
             return Response.status(CREATED).entity(returnJsonObj).build();
 
         } catch (Throwable ex) {
-            final String msg = ex.getMessage();
-            logger.error(ex.getMessage(), ex);
-            final JSONObject returnJsonObj = ResponseUtil.generateErrorJsonObject(msg);
+            final Throwable cause = (ex instanceof ExecutionException && ex.getCause() != null) ? ex.getCause() : ex;
+            logger.error(cause.getMessage(), cause);
+            final JSONObject returnJsonObj = ResponseUtil.generateErrorJsonObject(cause.getMessage());
             return Response.status(BAD_REQUEST).entity(returnJsonObj).build();
         }
     }
 
+    /**
+     * Returns the linear id of the unconsumed project the allocation belongs to, or null if the allocation or its
+     * project cannot be found.
+     */
+    private UniqueIdentifier projectLinearIdOfAllocation(UniqueIdentifier allocationLinearId) {
+        StateAndRef<AllocationState> allocation;
+        if (readModel.getAllocations().isReady()) {
+            allocation = readModel.getAllocations().getByLinearId(allocationLinearId);
+        } else {
+            QueryCriteria criteria = new QueryCriteria.LinearStateQueryCriteria(
+                    null, ImmutableList.of(allocationLinearId), Vault.StateStatus.UNCONSUMED, null);
+            List<StateAndRef<AllocationState>> allocations = rpcOps.vaultQueryByCriteria(criteria, AllocationState.class).getStates();
+            allocation = allocations.isEmpty() ? null : allocations.get(0);
+        }
+        if (allocation == null) {
+            return null;
+        }
+
+        final String projectCode = allocation.getState().getData().getProjectCode();
+        final List<StateAndRef<ProjectState>> projects = readModel.getProjects().isReady()
+                ? readModel.getProjects().getBy(ReadModel.PROJECT_CODE, projectCode)
+                : rpcOps.vaultQueryByCriteria(projectCodeCriteria(projectCode), ProjectState.class).getStates();
+        return projects.isEmpty() ? null : projects.get(0).getState().getData().getLinearId();
+    }
+
+    /**
+     * Criteria matching projects by the indexed projectCode column.
+     */
+    private static QueryCriteria projectCodeCriteria(String projectCode) {
+        try {
+            Field projectCodeField = ProjectSchemaV1.PersistentProject.class.getDeclaredField("projectCode");
+            return new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(projectCodeField, projectCode));
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Project schema does not define a project code.", e);
+        }
+    }
+
+    /**
+     * One entry of the bulk-allocate request body.
+     */
+    public static class AllocationEntry {
+        private String deliveryTeam;
+        private int amount;
+        private String startDate;
+        private String endDate;
+
+        public String getDeliveryTeam() {
+            return deliveryTeam;
+        }
+
+        public void setDeliveryTeam(String deliveryTeam) {
+            this.deliveryTeam = deliveryTeam;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public void setAmount(int amount) {
+            this.amount = amount;
+        }
+
+        public String getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(String startDate) {
+            this.startDate = startDate;
+        }
+
+        public String getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(String endDate) {
+            this.endDate = endDate;
+        }
+    }
 }
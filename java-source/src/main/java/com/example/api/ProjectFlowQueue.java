@@ -0,0 +1,148 @@
+package com.example.api;
+
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.messaging.FlowProgressHandle;
+import net.corda.core.transactions.SignedTransaction;
+import org.json.simple.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the flows that consume a given ProjectState one after another.
+ *
+ * Allocation and allocation update flows all spend the project's current state, so when two run at once the loser
+ * fails at the notary after every counterparty has already signed. Requests submitted here under the same project
+ * linear id wait for the previous flow on that project to finish before their own flow is started; requests for different
+ * projects still run in parallel. No thread is held while a flow runs.
+ */
+public class ProjectFlowQueue {
+    static private final long THROUGHPUT_WINDOW_MILLIS = 60000;
+
+    private final Map<UniqueIdentifier, CompletableFuture<?>> tails = new HashMap<>();
+    private final Map<UniqueIdentifier, Integer> depths = new HashMap<>();
+    private final Deque<Long> completionTimes = new ArrayDeque<>();
+
+    //flows are started from here rather than from RPC callback threads, which must not make RPC calls themselves
+    private final ExecutorService starter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "project-flow-queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long submitted;
+    private long succeeded;
+    private long failed;
+    private int maxDepth;
+
+    /**
+     * Queues a flow behind any others for the same project. The flow is started by startFlow once its turn comes,
+     * onStarted is then given its handle, and the returned future completes with the flow's outcome.
+     */
+    public CompletableFuture<SignedTransaction> submit(UniqueIdentifier projectLinearId,
+                                                       Supplier<FlowProgressHandle<SignedTransaction>> startFlow,
+                                                       Consumer<FlowProgressHandle<SignedTransaction>> onStarted) {
+        final CompletableFuture<SignedTransaction> result;
+        synchronized (tails) {
+            final CompletableFuture<?> previous = tails.getOrDefault(projectLinearId, CompletableFuture.completedFuture(null));
+            result = previous.handle((ignored, error) -> null)
+                    .thenComposeAsync(ignored -> start(startFlow, onStarted), starter);
+            tails.put(projectLinearId, result);
+
+            final int depth = depths.merge(projectLinearId, 1, Integer::sum);
+            maxDepth = Math.max(maxDepth, depth);
+            submitted++;
+        }
+        result.whenComplete((stx, error) -> finished(projectLinearId, result, error));
+        return result;
+    }
+
+    private CompletableFuture<SignedTransaction> start(Supplier<FlowProgressHandle<SignedTransaction>> startFlow,
+                                                       Consumer<FlowProgressHandle<SignedTransaction>> onStarted) {
+        final CompletableFuture<SignedTransaction> outcome = new CompletableFuture<>();
+        final FlowProgressHandle<SignedTransaction> flowHandle;
+        try {
+            flowHandle = startFlow.get();
+            onStarted.accept(flowHandle);
+        } catch (RuntimeException e) {
+            outcome.completeExceptionally(e);
+            return outcome;
+        }
+
+        flowHandle.getReturnValue().then(future -> {
+            try {
+                outcome.complete(future.get());
+            } catch (ExecutionException e) {
+                outcome.completeExceptionally((e.getCause() == null) ? e : e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome.completeExceptionally(e);
+            } finally {
+                flowHandle.close();
+            }
+            return null;
+        });
+        return outcome;
+    }
+
+    private void finished(UniqueIdentifier projectLinearId, CompletableFuture<?> result, Throwable error) {
+        synchronized (tails) {
+            final int depth = depths.merge(projectLinearId, -1, Integer::sum);
+            if (depth <= 0) {
+                depths.remove(projectLinearId);
+            }
+            //nothing queued behind this flow, so the project needs no entry any more
+            if (tails.get(projectLinearId) == result) {
+                tails.remove(projectLinearId);
+            }
+
+            if (error == null) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+            final long now = System.currentTimeMillis();
+            completionTimes.addLast(now);
+            trimCompletionTimes(now);
+        }
+    }
+
+    private void trimCompletionTimes(long now) {
+        while (!completionTimes.isEmpty() && completionTimes.peekFirst() < now - THROUGHPUT_WINDOW_MILLIS) {
+            completionTimes.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the request counters, the current queue depth per project and the number of flows finished in the
+     * last minute.
+     */
+    public JSONObject metrics() {
+        final JSONObject jsonObject = new JSONObject();
+        synchronized (tails) {
+            trimCompletionTimes(System.currentTimeMillis());
+            int inFlight = 0;
+            for (int depth : depths.values()) {
+                inFlight += depth;
+            }
+            jsonObject.put("submitted", submitted);
+            jsonObject.put("succeeded", succeeded);
+            jsonObject.put("failed", failed);
+            jsonObject.put("inFlight", inFlight);
+            jsonObject.put("maxDepth", maxDepth);
+            jsonObject.put("finishedLastMinute", completionTimes.size());
+            final Map<String, Integer> depthByProject = new HashMap<>();
+            depths.forEach((projectLinearId, depth) -> depthByProject.put(projectLinearId.toString(), depth));
+            jsonObject.put("depthByProject", depthByProject);
+        }
+        return jsonObject;
+    }
+}
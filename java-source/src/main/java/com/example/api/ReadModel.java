@@ -0,0 +1,67 @@
+package com.example.api;
+
+import com.example.state.AllocationState;
+import com.example.state.DemandState;
+import com.example.state.ProjectState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import org.json.simple.JSONObject;
+
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The webserver's read-side view of the vault: projections of the unconsumed Project, Allocation and Demand states,
+ * indexed the way the read endpoints look them up. Parties are indexed by their X.500 name.
+ */
+public class ReadModel {
+    public static final String PROJECT_CODE = "projectCode";
+    public static final String PLATFORM_LEAD = "platformLead";
+    public static final String DELIVERY_TEAM = "deliveryTeam";
+
+    private final StateProjection<ProjectState> projects;
+    private final StateProjection<AllocationState> allocations;
+    private final StateProjection<DemandState> demands;
+
+    public ReadModel(CordaRPCOps rpcOps) {
+        this.projects = new StateProjection<>(rpcOps, ProjectState.class, ImmutableMap.of(
+                PROJECT_CODE, project -> ImmutableList.of(project.getProjectCode()),
+                PLATFORM_LEAD, project -> ImmutableList.of(key(project.getPlatformLead())),
+                DELIVERY_TEAM, project -> project.getDeliveryTeams().stream().map(ReadModel::key).collect(toList())));
+        this.allocations = new StateProjection<>(rpcOps, AllocationState.class, ImmutableMap.of(
+                PROJECT_CODE, allocation -> ImmutableList.of(allocation.getProjectCode()),
+                PLATFORM_LEAD, allocation -> ImmutableList.of(key(allocation.getPlatformLead())),
+                DELIVERY_TEAM, allocation -> ImmutableList.of(key(allocation.getDeliveryTeam()))));
+        this.demands = new StateProjection<>(rpcOps, DemandState.class, ImmutableMap.of(
+                PLATFORM_LEAD, demand -> ImmutableList.of(key(demand.getPlatformLead()))));
+    }
+
+    public static String key(Party party) {
+        return party.getName().toString();
+    }
+
+    public StateProjection<ProjectState> getProjects() {
+        return projects;
+    }
+
+    public StateProjection<AllocationState> getAllocations() {
+        return allocations;
+    }
+
+    public StateProjection<DemandState> getDemands() {
+        return demands;
+    }
+
+    public Map<String, StateProjection<?>> getProjections() {
+        return ImmutableMap.of("project", projects, "allocation", allocations, "demand", demands);
+    }
+
+    public JSONObject status(boolean verify) {
+        final JSONObject jsonObject = new JSONObject();
+        getProjections().forEach((type, projection) -> jsonObject.put(type, projection.status(verify)));
+        return jsonObject;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.api;
+
+import com.example.util.ResponseUtil;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import static javax.ws.rs.core.Response.Status.ACCEPTED;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Reports on, and rebuilds, the webserver's in-memory read model. This API is accessible from /api/read-model.
+ */
+@Path("read-model")
+public class ReadModelApi {
+    private final ReadModel readModel;
+
+    public ReadModelApi(ReadModel readModel) {
+        this.readModel = readModel;
+    }
+
+    /**
+     * Returns, per state type, whether the projection is loaded, how many states it holds and how long ago it last
+     * changed. With verify=true the unconsumed state count in the vault is included for comparison.
+     */
+    @GET
+    @Path("status")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatus(@QueryParam("verify") boolean verify) {
+        return Response.status(OK).entity(readModel.status(verify)).build();
+    }
+
+    /**
+     * Discards the projections and starts reloading them from the vault. Progress shows in the status.
+     */
+    @POST
+    @Path("rebuild")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response rebuild() {
+        readModel.getProjections().values().forEach(StateProjection::rebuild);
+        return Response.status(ACCEPTED).entity(ResponseUtil.generateSuccessJsonObject("Read model rebuild has started.")).build();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.api;
+
+import com.example.schema.AllocationSchemaV1;
+import com.example.schema.ProjectSchemaV1;
+import com.example.state.AllocationState;
+import com.example.state.ProjectState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.util.PagingUtil.MAX_PAGE_SIZE;
+import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Budget and allocation totals over the unconsumed states, computed by the vault database so that only one row per
+ * group crosses RPC. This API is accessible from /api/report.
+ *
+ * At most MAX_PAGE_SIZE groups are returned by each report. The allocation totals are served by
+ * allocation_project_team_idx; see AllocationSchemaV1.
+ */
+@Path("report")
+public class ReportApi {
+    private final CordaRPCOps rpcOps;
+
+    static private final Logger logger = LoggerFactory.getLogger(ReportApi.class);
+
+    public ReportApi(CordaRPCOps rpcOps) {
+        this.rpcOps = rpcOps;
+    }
+
+    /**
+     * Returns, per project, the number of allocations, the total allocated and the remaining budget.
+     */
+    @GET
+    @Path("allocations/by-project")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTotalsByProject() {
+        try {
+            final List<JSONObject> totals = allocationTotals("projectCode");
+
+            //remaining budget is held on the unconsumed project state itself
+            final Map<Object, Object> remainingBudgets = new HashMap<>();
+            final QueryCriteria budgetCriteria = new QueryCriteria.VaultCustomQueryCriteria(
+                    Builder.sum(projectField("budget"), ImmutableList.of(projectField("projectCode"))));
+            for (Object[] row : aggregate(ProjectState.class, budgetCriteria, 2)) {
+                remainingBudgets.put(row[1], row[0]);
+            }
+            for (JSONObject total : totals) {
+                total.put("remainingBudget", remainingBudgets.get(total.get("projectCode")));
+            }
+            return Response.status(OK).entity(totals).build();
+        } catch (NoSuchFieldException e) {
+            logger.error(e.getMessage(), e);
+            return Response.status(INTERNAL_SERVER_ERROR).entity("Schema does not define the report columns.\n").build();
+        }
+    }
+
+    /**
+     * Returns, per delivery team, the number of allocations and the total allocated across projects.
+     */
+    @GET
+    @Path("allocations/by-delivery-team")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTotalsByDeliveryTeam() {
+        try {
+            return Response.status(OK).entity(allocationTotals("deliveryTeam")).build();
+        } catch (NoSuchFieldException e) {
+            logger.error(e.getMessage(), e);
+            return Response.status(INTERNAL_SERVER_ERROR).entity("Schema does not define the report columns.\n").build();
+        }
+    }
+
+    /**
+     * Returns, per project and delivery team, the number of allocations and the total allocated.
+     */
+    @GET
+    @Path("allocations/by-project-and-team")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTotalsByProjectAndDeliveryTeam() {
+        try {
+            return Response.status(OK).entity(allocationTotals("projectCode", "deliveryTeam")).build();
+        } catch (NoSuchFieldException e) {
+            logger.error(e.getMessage(), e);
+            return Response.status(INTERNAL_SERVER_ERROR).entity("Schema does not define the report columns.\n").build();
+        }
+    }
+
+    /**
+     * Counts and sums the unconsumed allocation amounts grouped by the given columns. The vault returns the
+     * aggregates first and then the group columns, so each row is [count, sum, column...].
+     */
+    private List<JSONObject> allocationTotals(String... groupColumns) throws NoSuchFieldException {
+        final Field amountField = allocationField("allocationAmount");
+        final List<Field> groupByFields = new ArrayList<>();
+        for (String column : groupColumns) {
+            groupByFields.add(allocationField(column));
+        }
+
+        final QueryCriteria criteria = new QueryCriteria.VaultCustomQueryCriteria(Builder.count(amountField))
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.sum(amountField, groupByFields)));
+
+        final List<JSONObject> totals = new ArrayList<>();
+        for (Object[] row : aggregate(AllocationState.class, criteria, 2 + groupColumns.length)) {
+            final JSONObject total = new JSONObject();
+            for (int i = 0; i < groupColumns.length; i++) {
+                total.put(groupColumns[i], row[2 + i]);
+            }
+            total.put("allocations", row[0]);
+            total.put("allocated", row[1]);
+            totals.add(total);
+        }
+        return totals;
+    }
+
+    private List<Object[]> aggregate(Class<? extends ContractState> type, QueryCriteria criteria, int width) {
+        final List<Object> results = rpcOps.vaultQueryBy(criteria, new PageSpecification(1, MAX_PAGE_SIZE),
+                new Sort(ImmutableSet.of()), type).getOtherResults();
+
+        //the other results come back as one flat list, width values per group
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i + width <= results.size(); i += width) {
+            rows.add(results.subList(i, i + width).toArray());
+        }
+        return rows;
+    }
+
+    private static Field allocationField(String name) throws NoSuchFieldException {
+        return AllocationSchemaV1.PersistentAllocation.class.getDeclaredField(name);
+    }
+
+    private static Field projectField(String name) throws NoSuchFieldException {
+        return ProjectSchemaV1.PersistentProject.class.getDeclaredField(name);
+    }
+}
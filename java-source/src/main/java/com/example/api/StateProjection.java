@@ -0,0 +1,278 @@
+package com.example.api;
+
+import com.example.util.PagingUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * An in-memory copy of the unconsumed states of one type, kept current from a vaultTrack subscription so that
+ * reads do not need an RPC round-trip into the vault.
+ *
+ * States are held by linearId, with secondary indexes built from the given key extractors. The snapshot is read in
+ * pages of PagingUtil.MAX_PAGE_SIZE, the first with the subscription and the rest in recording order from the last
+ * recorded time seen, so that a state consumed between two pages cannot shift a later one out of reach. Updates
+ * arriving while the snapshot is being loaded are held back and applied once the last page is in, so states produced
+ * or consumed meanwhile end up as the vault has them and the projection never goes backwards.
+ *
+ * Loading runs on a background thread, both when the projection is created and when it is rebuilt, so that the
+ * webserver thread creating it is not held up; until it completes isReady() is false and callers fall back to the
+ * vault.
+ */
+public class StateProjection<T extends LinearState> {
+    static private final Logger logger = LoggerFactory.getLogger(StateProjection.class);
+    private static final int SNAPSHOT_PAGE_SIZE = PagingUtil.MAX_PAGE_SIZE;
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "read-model-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CordaRPCOps rpcOps;
+    private final Class<T> stateType;
+    private final Map<String, Function<T, Collection<String>>> indexKeys;
+
+    private final Map<UniqueIdentifier, StateAndRef<T>> byLinearId = new HashMap<>();
+    private final Map<String, Map<String, Set<UniqueIdentifier>>> indexes = new HashMap<>();
+    private final List<Vault.Update<T>> pendingUpdates = new ArrayList<>();
+
+    private Subscription subscription;
+    private boolean seeding;
+    private volatile boolean ready;
+    private volatile Instant seededAt;
+    private volatile Instant lastUpdateAt;
+    private volatile String error;
+    private long updatesApplied;
+
+    public StateProjection(CordaRPCOps rpcOps, Class<T> stateType, Map<String, Function<T, Collection<String>>> indexKeys) {
+        this.rpcOps = rpcOps;
+        this.stateType = stateType;
+        this.indexKeys = indexKeys;
+        rebuild();
+    }
+
+    public Class<T> getStateType() {
+        return stateType;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Drops the current contents and subscription, then reloads the projection from the vault in the background.
+     */
+    public void rebuild() {
+        loader.execute(this::load);
+    }
+
+    private void load() {
+        synchronized (byLinearId) {
+            if (subscription != null) {
+                subscription.unsubscribe();
+            }
+            ready = false;
+            seeding = true;
+            error = null;
+            byLinearId.clear();
+            indexes.clear();
+            pendingUpdates.clear();
+            updatesApplied = 0;
+        }
+
+        try {
+            final QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+            final DataFeed<Vault.Page<T>, Vault.Update<T>> feed = rpcOps.vaultTrackBy(criteria,
+                    new PageSpecification(1, SNAPSHOT_PAGE_SIZE), PagingUtil.RECORDED_ORDER, stateType);
+            synchronized (byLinearId) {
+                subscription = feed.getUpdates().subscribe(this::onUpdate, this::onError);
+            }
+
+            Vault.Page<T> page = feed.getSnapshot();
+            Instant lastRecordedTime = null;
+            int pageNumber = 1;
+            while (true) {
+                final List<StateAndRef<T>> states = page.getStates();
+                synchronized (byLinearId) {
+                    states.forEach(this::put);
+                }
+                if (states.size() < SNAPSHOT_PAGE_SIZE) {
+                    break;
+                }
+                //states recorded at the last time seen are read again; putting them twice is harmless
+                final List<Vault.StateMetadata> statesMetadata = page.getStatesMetadata();
+                final Instant pageRecordedTime = statesMetadata.get(statesMetadata.size() - 1).getRecordedTime();
+                if (pageRecordedTime.equals(lastRecordedTime)) {
+                    //the whole page shares one recorded time, so step past it within that time
+                    pageNumber++;
+                } else {
+                    lastRecordedTime = pageRecordedTime;
+                    pageNumber = 1;
+                }
+                page = rpcOps.vaultQueryBy(PagingUtil.recordedSince(Vault.StateStatus.UNCONSUMED, lastRecordedTime),
+                        new PageSpecification(pageNumber, SNAPSHOT_PAGE_SIZE), PagingUtil.RECORDED_ORDER, stateType);
+            }
+
+            final int seeded;
+            synchronized (byLinearId) {
+                seeded = byLinearId.size();
+                pendingUpdates.forEach(this::apply);
+                pendingUpdates.clear();
+                seeding = false;
+                seededAt = Instant.now();
+                ready = true;
+            }
+            logger.info("Projection of {} seeded with {} states", stateType.getSimpleName(), seeded);
+        } catch (RuntimeException e) {
+            onError(e);
+        }
+    }
+
+    private void onUpdate(Vault.Update<T> update) {
+        synchronized (byLinearId) {
+            if (seeding) {
+                pendingUpdates.add(update);
+            } else {
+                apply(update);
+            }
+        }
+    }
+
+    private void onError(Throwable e) {
+        logger.error("Projection of {} stopped", stateType.getSimpleName(), e);
+        synchronized (byLinearId) {
+            error = e.getMessage();
+            ready = false;
+        }
+    }
+
+    private void apply(Vault.Update<T> update) {
+        update.getConsumed().forEach(this::remove);
+        update.getProduced().forEach(this::put);
+        updatesApplied++;
+        lastUpdateAt = Instant.now();
+    }
+
+    private void put(StateAndRef<T> stateAndRef) {
+        final UniqueIdentifier linearId = stateAndRef.getState().getData().getLinearId();
+        final StateAndRef<T> previous = byLinearId.put(linearId, stateAndRef);
+        if (previous != null) {
+            unindex(previous);
+        }
+        indexKeys.forEach((index, keys) -> {
+            for (String key : keys.apply(stateAndRef.getState().getData())) {
+                indexes.computeIfAbsent(index, i -> new HashMap<>())
+                        .computeIfAbsent(key, k -> new HashSet<>())
+                        .add(linearId);
+            }
+        });
+    }
+
+    private void remove(StateAndRef<T> stateAndRef) {
+        final UniqueIdentifier linearId = stateAndRef.getState().getData().getLinearId();
+        final StateAndRef<T> current = byLinearId.get(linearId);
+        //only drop the entry if it is the version being consumed, a newer one may already have been put
+        if (current != null && current.getRef().equals(stateAndRef.getRef())) {
+            byLinearId.remove(linearId);
+            unindex(current);
+        }
+    }
+
+    private void unindex(StateAndRef<T> stateAndRef) {
+        final UniqueIdentifier linearId = stateAndRef.getState().getData().getLinearId();
+        indexKeys.forEach((index, keys) -> {
+            final Map<String, Set<UniqueIdentifier>> byKey = indexes.get(index);
+            if (byKey == null) {
+                return;
+            }
+            for (String key : keys.apply(stateAndRef.getState().getData())) {
+                final Set<UniqueIdentifier> ids = byKey.get(key);
+                if (ids != null) {
+                    ids.remove(linearId);
+                    if (ids.isEmpty()) {
+                        byKey.remove(key);
+                    }
+                }
+            }
+        });
+    }
+
+    public List<StateAndRef<T>> getAll() {
+        synchronized (byLinearId) {
+            return ImmutableList.copyOf(byLinearId.values());
+        }
+    }
+
+    public StateAndRef<T> getByLinearId(UniqueIdentifier linearId) {
+        synchronized (byLinearId) {
+            return byLinearId.get(linearId);
+        }
+    }
+
+    /**
+     * Returns the states whose index key matches, or an empty list if the index or key is unknown.
+     */
+    public List<StateAndRef<T>> getBy(String index, String key) {
+        synchronized (byLinearId) {
+            final Set<UniqueIdentifier> ids = indexes.getOrDefault(index, Collections.emptyMap()).get(key);
+            if (ids == null) {
+                return ImmutableList.of();
+            }
+            final List<StateAndRef<T>> states = new ArrayList<>(ids.size());
+            ids.forEach(id -> states.add(byLinearId.get(id)));
+            return states;
+        }
+    }
+
+    /**
+     * Describes how current the projection is. With verify set, the number of unconsumed states in the vault is
+     * also queried so that any drift from the vault shows up.
+     */
+    public JSONObject status(boolean verify) {
+        final JSONObject jsonObject = new JSONObject();
+        final Instant now = Instant.now();
+        synchronized (byLinearId) {
+            jsonObject.put("ready", ready);
+            jsonObject.put("states", byLinearId.size());
+            jsonObject.put("updatesApplied", updatesApplied);
+            jsonObject.put("error", error);
+        }
+        jsonObject.put("seededAt", (seededAt == null) ? null : seededAt.toString());
+        jsonObject.put("lastUpdateAt", (lastUpdateAt == null) ? null : lastUpdateAt.toString());
+        final Instant lastChange = (lastUpdateAt != null) ? lastUpdateAt : seededAt;
+        jsonObject.put("millisSinceLastChange", (lastChange == null) ? null : Duration.between(lastChange, now).toMillis());
+
+        if (verify) {
+            final long vaultStates = rpcOps.vaultQueryBy(new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
+                    new PageSpecification(1, 1), new Sort(ImmutableSet.of()), stateType).getTotalStatesAvailable();
+            jsonObject.put("vaultStates", vaultStates);
+        }
+        return jsonObject;
+    }
+}
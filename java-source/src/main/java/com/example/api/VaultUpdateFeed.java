@@ -0,0 +1,144 @@
+package com.example.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.messaging.DataFeed;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * A single vaultTrack subscription for one state type, fanned out to any number of server-sent event clients.
+ *
+ * Every vault update is serialised once into an event carrying only the produced and consumed states, and numbered
+ * with an increasing id. The most recent events are kept so that a reconnecting client can pass the last id it saw
+ * and have the updates it missed replayed.
+ */
+public class VaultUpdateFeed<T extends ContractState> {
+    public static final int REPLAY_BUFFER_SIZE = 1000;
+    public static final int SUBSCRIBER_QUEUE_SIZE = 256;
+
+    static private final Logger logger = LoggerFactory.getLogger(VaultUpdateFeed.class);
+
+    private final Class<T> stateType;
+    private final ObjectMapper mapper;
+    private final Deque<Event> replayBuffer = new ArrayDeque<>();
+    private final Set<BlockingQueue<Event>> subscribers = new CopyOnWriteArraySet<>();
+    private final Subscription subscription;
+    private long lastEventId = 0;
+
+    public VaultUpdateFeed(CordaRPCOps rpcOps, ObjectMapper mapper, Class<T> stateType) {
+        this.stateType = stateType;
+        this.mapper = mapper;
+
+        //only the updates are of interest, so keep the snapshot down to a single state
+        QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        DataFeed<Vault.Page<T>, Vault.Update<T>> feed = rpcOps.vaultTrackBy(criteria,
+                new PageSpecification(1, 1), new Sort(ImmutableSet.of()), stateType);
+        this.subscription = feed.getUpdates().subscribe(this::publish,
+                error -> logger.error("Vault updates for {} stopped", stateType.getSimpleName(), error));
+    }
+
+    public Class<T> getStateType() {
+        return stateType;
+    }
+
+    private void publish(Vault.Update<T> update) {
+        final String data;
+        try {
+            data = mapper.writeValueAsString(ImmutableMap.of(
+                    "produced", update.getProduced(),
+                    "consumed", update.getConsumed()));
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialise vault update for {}", stateType.getSimpleName(), e);
+            return;
+        }
+
+        //fan out under the same lock as subscribe() so a new client never sees an event both replayed and pushed
+        synchronized (replayBuffer) {
+            final Event event = new Event(++lastEventId, data);
+            replayBuffer.addLast(event);
+            if (replayBuffer.size() > REPLAY_BUFFER_SIZE) {
+                replayBuffer.removeFirst();
+            }
+
+            for (BlockingQueue<Event> queue : subscribers) {
+                if (!queue.offer(event)) {
+                    //a client this far behind is cut off; it will reconnect and catch up from the replay buffer
+                    subscribers.remove(queue);
+                    queue.clear();
+                    queue.offer(Event.OVERFLOW);
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a new client. Events after lastSeenId are queued for replay first; if lastSeenId is older than the
+     * replay buffer a RESET event is queued instead, telling the client to reload its lists.
+     */
+    public BlockingQueue<Event> subscribe(Long lastSeenId) {
+        BlockingQueue<Event> queue = new ArrayBlockingQueue<>(REPLAY_BUFFER_SIZE + SUBSCRIBER_QUEUE_SIZE);
+        synchronized (replayBuffer) {
+            if (lastSeenId != null && lastSeenId != lastEventId) {
+                Event oldest = replayBuffer.peekFirst();
+                //ids from before a webserver restart, or older than the buffer, cannot be replayed
+                if (lastSeenId > lastEventId || oldest == null || lastSeenId < oldest.getId() - 1) {
+                    queue.offer(Event.RESET);
+                } else {
+                    for (Event event : replayBuffer) {
+                        if (event.getId() > lastSeenId) {
+                            queue.offer(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(queue);
+        }
+        return queue;
+    }
+
+    public void unsubscribe(BlockingQueue<Event> queue) {
+        subscribers.remove(queue);
+    }
+
+    public void close() {
+        subscription.unsubscribe();
+    }
+
+    public static class Event {
+        static final Event RESET = new Event(-1, "reset");
+        static final Event OVERFLOW = new Event(-1, "overflow");
+
+        private final long id;
+        private final String data;
+
+        Event(long id, String data) {
+            this.id = id;
+            this.data = data;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getData() {
+            return data;
+        }
+    }
+}
@@ -2,12 +2,15 @@ package com.example.contract;
 
 import com.example.state.AllocationState;
 import com.example.state.ProjectState;
+import com.example.util.DateUtil;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.contracts.TimeWindow;
 import net.corda.core.transactions.LedgerTransaction;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
 import static net.corda.core.contracts.ContractsDSL.requireThat;
@@ -22,58 +25,70 @@ public class AllocationContract implements Contract {
             requireThat(require -> {
                 require.using("Only 1 input should be consumed when creating an allocation.",
                         tx.getInputs().size() == 1);
-                require.using("Two output state should be created.",
-                        tx.getOutputs().size() == 2);
+
+                final List<AllocationState> outputAllocationStates = tx.outputsOfType(AllocationState.class);
+                require.using("At least one allocation output should be created.",
+                        !outputAllocationStates.isEmpty());
+                require.using("Only the allocations and the updated project should be created.",
+                        tx.getOutputs().size() == outputAllocationStates.size() + 1);
 
                 final ProjectState inputProjectState = tx.inputsOfType(ProjectState.class).get(0);
-                final AllocationState outputAllocationState = tx.outputsOfType(AllocationState.class).get(0);
                 final ProjectState outputProjectState = tx.outputsOfType(ProjectState.class).get(0);
 
-                //checking output allocation state
-                require.using("Description must exist.",
-                        !outputAllocationState.getDescription().isEmpty());
-                require.using("Description must tally between input and output",
-                        inputProjectState.getDescription().equals(outputAllocationState.getDescription()));
-                require.using("Platform Lead must exist.",
-                        outputAllocationState.getPlatformLead() != null);
-                require.using("Platform Lead must tally between input and output",
-                        inputProjectState.getPlatformLead().equals(outputAllocationState.getPlatformLead()));
-                require.using("Delivery Team must exist.",
-                        outputAllocationState.getDeliveryTeam() != null);
-                require.using("COO must exist",
-                        outputAllocationState.getCoo() != null);
-                require.using("COO must tally between input and output",
-                        inputProjectState.getCoo().equals(outputAllocationState.getCoo()));
-                require.using("The delivery team and platform lead cannot be the same entity.",
-                        outputAllocationState.getDeliveryTeam() != outputAllocationState.getPlatformLead());
-                require.using("Delivery Team and platform lead must be signers.",
-                        command.getSigners().containsAll(Arrays.asList(
-                                outputAllocationState.getDeliveryTeam().getOwningKey(),
-                                outputAllocationState.getPlatformLead().getOwningKey())));
-                require.using("Start date must exist.",
-                        outputAllocationState.getStartDate() != null);
-                require.using("End date must exist.",
-                        outputAllocationState.getEndDate() != null);
-                require.using("Project code must exist.",
-                        outputAllocationState.getProjectCode() != null);
-                require.using("Project code must tally between input and output",
-                        inputProjectState.getProjectCode().equals(outputAllocationState.getProjectCode()));
-                require.using("Allocation key must exist.",
-                        outputAllocationState.getAllocationKey() != null);
-                require.using("Allocation key must tally between input and output.",
-                        outputAllocationState.getAllocationKey().equals(inputProjectState.getAllocationKey()));
+                //several delivery teams can be allocated in the same transaction; every allocation is checked
+                //against the project and their amounts together must account for the budget deduction; the sum is
+                //kept in a long so that many large amounts cannot wrap around to a small deduction
+                long totalAllocationAmount = 0;
+                for(AllocationState outputAllocationState : outputAllocationStates){
+                    //checking output allocation state
+                    require.using("Description must exist.",
+                            !outputAllocationState.getDescription().isEmpty());
+                    require.using("Description must tally between input and output",
+                            inputProjectState.getDescription().equals(outputAllocationState.getDescription()));
+                    require.using("Platform Lead must exist.",
+                            outputAllocationState.getPlatformLead() != null);
+                    require.using("Platform Lead must tally between input and output",
+                            inputProjectState.getPlatformLead().equals(outputAllocationState.getPlatformLead()));
+                    require.using("Delivery Team must exist.",
+                            outputAllocationState.getDeliveryTeam() != null);
+                    require.using("COO must exist",
+                            outputAllocationState.getCoo() != null);
+                    require.using("COO must tally between input and output",
+                            inputProjectState.getCoo().equals(outputAllocationState.getCoo()));
+                    require.using("The delivery team and platform lead cannot be the same entity.",
+                            outputAllocationState.getDeliveryTeam() != outputAllocationState.getPlatformLead());
+                    require.using("Delivery Team and platform lead must be signers.",
+                            command.getSigners().containsAll(Arrays.asList(
+                                    outputAllocationState.getDeliveryTeam().getOwningKey(),
+                                    outputAllocationState.getPlatformLead().getOwningKey())));
+                    require.using("Start date must exist.",
+                            outputAllocationState.getStartDate() != null);
+                    require.using("End date must exist.",
+                            outputAllocationState.getEndDate() != null);
+                    require.using("Project code must exist.",
+                            outputAllocationState.getProjectCode() != null);
+                    require.using("Project code must tally between input and output",
+                            inputProjectState.getProjectCode().equals(outputAllocationState.getProjectCode()));
+                    require.using("Allocation key must exist.",
+                            outputAllocationState.getAllocationKey() != null);
+                    require.using("Allocation key must tally between input and output.",
+                            outputAllocationState.getAllocationKey().equals(inputProjectState.getAllocationKey()));
+
+                    require.using("Allocation amount must be non-negative.",
+                            outputAllocationState.getAllocationAmount() > 0);
+
+                    require.using("End date cannot be earlier or equal to start date",
+                            outputAllocationState.getStartDate().isBefore(outputAllocationState.getEndDate()));
+                    require.using("Start date cannot be earlier than Project start date",
+                            !outputAllocationState.getStartDate().isBefore(inputProjectState.getStartDate()));
+                    require.using("End date cannot be later than Project end date",
+                            !outputAllocationState.getEndDate().isAfter(inputProjectState.getEndDate()));
+
+                    totalAllocationAmount += outputAllocationState.getAllocationAmount();
+                }
 
-                require.using("Allocation amount must be non-negative.",
-                        outputAllocationState.getAllocationAmount() > 0);
                 require.using("Allocation amount must be equal to (Input project budget - Output project budget)",
-                        outputAllocationState.getAllocationAmount() == inputProjectState.getBudget() - outputProjectState.getBudget());
-
-                require.using("End date cannot be earlier or equal to start date",
-                        outputAllocationState.getStartDate().isBefore(outputAllocationState.getEndDate()));
-                require.using("Start date cannot be earlier than Project start date",
-                        !outputAllocationState.getStartDate().isBefore(inputProjectState.getStartDate()));
-                require.using("End date cannot be later than Project end date",
-                        !outputAllocationState.getEndDate().isAfter(inputProjectState.getEndDate()));
+                        totalAllocationAmount == (long) inputProjectState.getBudget() - outputProjectState.getBudget());
 
                 return null;
             });
@@ -135,6 +150,27 @@ public class AllocationContract implements Contract {
                 require.using("End date cannot be later than Project end date",
                         !outputAllocationState.getEndDate().isAfter(inputProjectState.getEndDate()));
 
+                return null;
+            });
+        }else if(command.getValue() instanceof Commands.Close){
+            requireThat(require -> {
+                require.using("Only 1 input should be consumed when closing an allocation.",
+                        tx.getInputs().size() == 1);
+                require.using("No output state should be created when closing an allocation.",
+                        tx.getOutputs().isEmpty());
+                final List<AllocationState> inputAllocationStates = tx.inputsOfType(AllocationState.class);
+                require.using("The input must be an allocation.",
+                        inputAllocationStates.size() == 1);
+                final AllocationState inputAllocationState = inputAllocationStates.get(0);
+
+                final TimeWindow timeWindow = tx.getTimeWindow();
+                require.using("Closing an allocation must have a time window.",
+                        timeWindow != null && timeWindow.getFromTime() != null);
+                require.using("An allocation cannot be closed before its end date has passed.",
+                        !timeWindow.getFromTime().isBefore(DateUtil.expiryOf(inputAllocationState.getEndDate())));
+                require.using("Platform lead must be a signer.",
+                        command.getSigners().contains(inputAllocationState.getPlatformLead().getOwningKey()));
+
                 return null;
             });
         }else{
@@ -146,5 +182,6 @@ public class AllocationContract implements Contract {
     public interface Commands extends CommandData {
         class Create implements Commands {}
         class Update implements Commands {}
+        class Close implements Commands {}
     }
 }
@@ -1,15 +1,19 @@
 package com.example.contract;
 
 import com.example.state.DemandState;
+import com.example.util.DateUtil;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.contracts.TimeWindow;
 import net.corda.core.transactions.LedgerTransaction;
 
 import java.security.PublicKey;
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
 import static net.corda.core.contracts.ContractsDSL.requireThat;
@@ -25,26 +29,31 @@ public class DemandContract implements Contract{
             requireThat(require -> {
                 require.using("No inputs should be consumed when creating a demand.",
                         tx.getInputs().isEmpty());
-                require.using("Only one output state should be created.",
-                        tx.getOutputs().size() == 1);
-                final DemandState out = tx.outputsOfType(DemandState.class).get(0);
-                require.using("The sponsor and platform lead cannot be the same entity.",
-                        out.getSponsor() != out.getPlatformLead());
-                require.using("Description must exist.",
-                        !out.getDescription().isEmpty());
-                require.using("Sponsor must exist.",
-                        out.getSponsor() != null);
-                require.using("Platform Lead must exist.",
-                        out.getPlatformLead() != null);
-                require.using("Amount must be 0.",
-                        out.getAmount() == 0);
-                require.using("No approval parties must exist.",
-                        out.getApprovalParties() != null && out.getApprovalParties().isEmpty());
-
-                final List<PublicKey> requiredSigners = ImmutableList.of(
-                        out.getSponsor().getOwningKey(),
-                        out.getPlatformLead().getOwningKey()
-                );
+                require.using("At least one output state should be created.",
+                        !tx.getOutputs().isEmpty());
+                final List<DemandState> outputs = tx.outputsOfType(DemandState.class);
+                require.using("Only demand states should be created.",
+                        outputs.size() == tx.getOutputs().size());
+
+                // A batch creates several demands at once; each one must meet the same constraints.
+                final Set<PublicKey> requiredSigners = new HashSet<>();
+                for (DemandState out : outputs) {
+                    require.using("The sponsor and platform lead cannot be the same entity.",
+                            out.getSponsor() != out.getPlatformLead());
+                    require.using("Description must exist.",
+                            !out.getDescription().isEmpty());
+                    require.using("Sponsor must exist.",
+                            out.getSponsor() != null);
+                    require.using("Platform Lead must exist.",
+                            out.getPlatformLead() != null);
+                    require.using("Amount must be 0.",
+                            out.getAmount() == 0);
+                    require.using("No approval parties must exist.",
+                            out.getApprovalParties() != null && out.getApprovalParties().isEmpty());
+
+                    requiredSigners.add(out.getSponsor().getOwningKey());
+                    requiredSigners.add(out.getPlatformLead().getOwningKey());
+                }
                 require.using("Sponsor and platform must be signers.",
                         command.getSigners().containsAll(requiredSigners));
 
@@ -105,6 +114,20 @@ public class DemandContract implements Contract{
                         tx.getInputs().size() == 1);
                 require.using("No output state should be created upon approval.",
                         tx.getOutputs().isEmpty());
+                final List<DemandState> inputDemandStates = tx.inputsOfType(DemandState.class);
+                require.using("The input must be a demand.",
+                        inputDemandStates.size() == 1);
+                final DemandState inputDemandState = inputDemandStates.get(0);
+
+                require.using("End date must exist.",
+                        inputDemandState.getEndDate() != null);
+                final TimeWindow timeWindow = tx.getTimeWindow();
+                require.using("Closing a demand must have a time window.",
+                        timeWindow != null && timeWindow.getFromTime() != null);
+                require.using("A demand cannot be closed before its end date has passed.",
+                        !timeWindow.getFromTime().isBefore(DateUtil.expiryOf(inputDemandState.getEndDate())));
+                require.using("Sponsor must be a signer.",
+                        command.getSigners().contains(inputDemandState.getSponsor().getOwningKey()));
 
                 return null;
             });
@@ -6,15 +6,25 @@ import com.example.state.ProjectState;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.TransactionState;
 import net.corda.core.identity.Party;
 import net.corda.core.transactions.LedgerTransaction;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
 import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 
+/**
+ * Verification runs on every signer and on the validating notary, so each command walks the inputs and outputs once,
+ * picking out the states it checks, instead of filtering them again with {@code inputsOfType}/{@code outputsOfType}
+ * for every state it needs. Requirements are checked with {@link #require}, which builds the failure message only
+ * when the requirement fails; the messages are the same ones {@code requireThat} reported.
+ */
 public class ProjectContract implements Contract {
     public static final String PROJECT_CONTRACT_ID = "com.example.contract.ProjectContract";
 
@@ -23,224 +33,239 @@ public class ProjectContract implements Contract {
         final CommandWithParties<ProjectContract.Commands> command = requireSingleCommand(tx.getCommands(), ProjectContract.Commands.class);
 
         if(command.getValue() instanceof ProjectContract.Commands.Create){
-            requireThat(require -> {
-                require.using("Only one input state should be consumed when creating a project.",
-                        tx.getInputs().size() == 1);
-                require.using("Two output states should be created.",
-                        tx.getOutputs().size() == 2);
-
-                final ProjectState outputProjectState = tx.outputsOfType(ProjectState.class).get(0);
-                final DemandState outputDemandState = tx.outputsOfType(DemandState.class).get(0);
-                final DemandState inputDemandState = tx.inputsOfType(DemandState.class).get(0);
-                require.using("There must be a Project output.",
-                        outputProjectState!= null);
-                require.using("There must be a Demand output.",
-                        outputDemandState!= null);
-
-                require.using("Sponsor must exist.",
-                        outputProjectState.getSponsor() != null);
-                require.using("Platform Lead must exist.",
-                        outputProjectState.getPlatformLead() != null);
-                require.using("CIO must exist.",
-                        outputProjectState.getCio() != null);
-                require.using("COO must exist.",
-                        outputProjectState.getCoo() != null);
-
-                require.using("Description must exist.",
-                        !outputProjectState.getDescription().isEmpty());
-                require.using("Start date must exist.",
-                        outputProjectState.getStartDate() != null);
-                require.using("End date must exist.",
-                        outputProjectState.getEndDate() != null);
-                require.using("The startDate should not be equal to or later than end date.",
-                        outputProjectState.getStartDate().isBefore(outputProjectState.getEndDate()));
-                require.using("Project code must exist.",
-                        outputProjectState.getProjectCode() != null);
-                require.using("Allocation key must exist.",
-                        outputProjectState.getAllocationKey() != null);
-                require.using("Budget must be > 0.",
-                        outputProjectState.getBudget() > 0);
-
-                //CHECK INPUT AGAINST OUTPUT
-                require.using("Input description must be equal to output description",
-                        outputProjectState.getDescription().equals(inputDemandState.getDescription()));
-                require.using("Input sponsor must be equal to output sponsor",
-                        outputProjectState.getSponsor().equals(inputDemandState.getSponsor()));
-                require.using("Input platform lead must be equal to output platform lead",
-                        outputProjectState.getPlatformLead().equals(inputDemandState.getPlatformLead()));
-
-                //CHECK BOTH OUTPUTS
-                require.using("Description of Demand output must be equal to description of Project output",
-                        outputProjectState.getDescription().equals(outputDemandState.getDescription()));
-                require.using("Sponsor of Demand output must be equal to sponsor of Project output",
-                        outputProjectState.getSponsor().equals(outputDemandState.getSponsor()));
-                require.using("Platform lead of Demand output must be equal to platform lead of Project output",
-                        outputProjectState.getPlatformLead().equals(outputDemandState.getPlatformLead()));
-                require.using("Start date of Demand output must be equal to start date of Project output",
-                        outputProjectState.getStartDate().equals(outputDemandState.getStartDate()));
-                require.using("End date of Demand output must be equal to end date of Project output",
-                        outputProjectState.getEndDate().equals(outputDemandState.getEndDate()));
-                require.using("Amount of Demand output must be equal to budget of Project output",
-                        outputProjectState.getBudget() == outputDemandState.getAmount());
-
-                List<Party> approvalPartiesToCheck = Arrays.asList(outputProjectState.getCoo(), outputProjectState.getCio());
-                require.using("Approval parties of Demand output must contain CIO and COO of Project output",
-                        outputDemandState.getApprovalParties().containsAll(approvalPartiesToCheck));
-
-                return null;
-            });
-
+            verifyCreate(tx);
         }else if(command.getValue() instanceof ProjectContract.Commands.UpdateBudget){
-            requireThat(require -> {
-                require.using("Only one input state should be consumed when creating a project.",
-                        tx.getInputs().size() == 1);
-                require.using("Two output states should be created.",
-                        tx.getOutputs().size() == 2);
-
-                final ProjectState inputProjectState = tx.inputsOfType(ProjectState.class).get(0);
-                final ProjectState outputProjectState = tx.outputsOfType(ProjectState.class).get(0);
-                final AllocationState outputAllocationState = tx.outputsOfType(AllocationState.class).get(0);
-                require.using("There must be a Project output.",
-                        outputProjectState!= null);
-                require.using("There must be an Allocation output.",
-                        outputAllocationState!= null);
-
-                require.using("Sponsor must exist.",
-                        outputProjectState.getSponsor() != null);
-                require.using("Platform Lead must exist.",
-                        outputProjectState.getPlatformLead() != null);
-                require.using("CIO must exist.",
-                        outputProjectState.getCio() != null);
-                require.using("COO must exist.",
-                        outputProjectState.getCoo() != null);
-
-                require.using("Description must exist.",
-                        !outputProjectState.getDescription().isEmpty());
-                require.using("Start date must exist.",
-                        outputProjectState.getStartDate() != null);
-                require.using("End date must exist.",
-                        outputProjectState.getEndDate() != null);
-                require.using("Project code must exist.",
-                        outputProjectState.getProjectCode() != null);
-                require.using("Allocation key must exist.",
-                        outputProjectState.getAllocationKey() != null);
-                require.using("Remaining Budget must not be negative.",
-                        outputProjectState.getBudget() >= 0);
-
-                //check input against output
-                require.using("Input description must be equal to output description",
-                        outputProjectState.getDescription().equals(inputProjectState.getDescription()));
-                require.using("Input start date must be equal to output start date",
-                        outputProjectState.getStartDate().equals(inputProjectState.getStartDate()));
-                require.using("Input end date must be equal to output end date",
-                        outputProjectState.getEndDate().equals(inputProjectState.getEndDate()));
-                require.using("Input project code must be equal to output project code",
-                        outputProjectState.getProjectCode().equals(inputProjectState.getProjectCode()));
-                require.using("Input allocation key must be equal to output allocation key",
-                        outputProjectState.getAllocationKey().equals(inputProjectState.getAllocationKey()));
-                require.using("Input sponsor must be equal to output sponsor",
-                        outputProjectState.getSponsor().equals(inputProjectState.getSponsor()));
-                require.using("Input platform lead must be equal to output platform lead",
-                        outputProjectState.getPlatformLead().equals(inputProjectState.getPlatformLead()));
-                require.using("Input cio must be equal to output cio",
-                        outputProjectState.getCio().equals(inputProjectState.getCio()));
-                require.using("Input coo must be equal to output coo",
-                        outputProjectState.getCoo().equals(inputProjectState.getCoo()));
-
-                //check output project budget = input project budget - allocation amount
-                require.using("Remaining budget must be equal to (input project budget - allocated amount).",
-                        outputProjectState.getBudget() == (inputProjectState.getBudget() - outputAllocationState.getAllocationAmount()));
-
-                //check that delivery team is included in project
-                require.using("Delivery team must be a participant in project.",
-                        outputProjectState.getDeliveryTeams().contains(outputAllocationState.getDeliveryTeam()));
-
-                return null;
-            });
-
+            verifyUpdateBudget(tx);
         }else if(command.getValue() instanceof ProjectContract.Commands.UpdateAllocation){
-            requireThat(require -> {
-                require.using("Two input states should be consumed when updating an allocation.",
-                        tx.getInputs().size() == 2);
-                require.using("Two output states should be created.",
-                        tx.getOutputs().size() == 2);
-
-                final ProjectState inputProjectState = tx.inputsOfType(ProjectState.class).get(0);
-                final ProjectState outputProjectState = tx.outputsOfType(ProjectState.class).get(0);
-                final AllocationState inputAllocationState = tx.inputsOfType(AllocationState.class).get(0);
-                final AllocationState outputAllocationState = tx.outputsOfType(AllocationState.class).get(0);
-
-                require.using("There must be a Project input.",
-                        inputProjectState!= null);
-                require.using("There must be an Allocation input.",
-                        inputAllocationState!= null);
-
-                require.using("There must be a Project output.",
-                        outputProjectState!= null);
-                require.using("There must be an Allocation output.",
-                        outputAllocationState!= null);
-
-                require.using("Sponsor must exist.",
-                        outputProjectState.getSponsor() != null);
-                require.using("Platform Lead must exist.",
-                        outputProjectState.getPlatformLead() != null);
-                require.using("CIO must exist.",
-                        outputProjectState.getCio() != null);
-                require.using("COO must exist.",
-                        outputProjectState.getCoo() != null);
-
-                require.using("Description must exist.",
-                        !outputProjectState.getDescription().isEmpty());
-                require.using("Start date must exist.",
-                        outputProjectState.getStartDate() != null);
-                require.using("End date must exist.",
-                        outputProjectState.getEndDate() != null);
-                require.using("Project code must exist.",
-                        outputProjectState.getProjectCode() != null);
-                require.using("Allocation key must exist.",
-                        outputProjectState.getAllocationKey() != null);
-                require.using("Remaining Budget must not be negative.",
-                        outputProjectState.getBudget() >= 0);
-
-                //check input against output
-                require.using("Input description must be equal to output description",
-                        outputProjectState.getDescription().equals(inputProjectState.getDescription()));
-                require.using("Input start date must be equal to output start date",
-                        outputProjectState.getStartDate().equals(inputProjectState.getStartDate()));
-                require.using("Input end date must be equal to output end date",
-                        outputProjectState.getEndDate().equals(inputProjectState.getEndDate()));
-                require.using("Input project code must be equal to output project code",
-                        outputProjectState.getProjectCode().equals(inputProjectState.getProjectCode()));
-                require.using("Input allocation key must be equal to output allocation key",
-                        outputProjectState.getAllocationKey().equals(inputProjectState.getAllocationKey()));
-                require.using("Input sponsor must be equal to output sponsor",
-                        outputProjectState.getSponsor().equals(inputProjectState.getSponsor()));
-                require.using("Input platform lead must be equal to output platform lead",
-                        outputProjectState.getPlatformLead().equals(inputProjectState.getPlatformLead()));
-                require.using("Input cio must be equal to output cio",
-                        outputProjectState.getCio().equals(inputProjectState.getCio()));
-                require.using("Input coo must be equal to output coo",
-                        outputProjectState.getCoo().equals(inputProjectState.getCoo()));
-                require.using("Input delivery teams must be equal to output delivery teams",
-                        outputProjectState.getDeliveryTeams().containsAll(inputProjectState.getDeliveryTeams()) &&
-                        outputProjectState.getDeliveryTeams().size() == inputProjectState.getDeliveryTeams().size());
-
-                //check output project budget = input project budget - allocation amount
-                require.using("Remaining budget must be equal to (input project budget + input allocation amount - output allocation amount).",
-                        outputProjectState.getBudget() == (inputProjectState.getBudget() + inputAllocationState.getAllocationAmount() - outputAllocationState.getAllocationAmount()));
-
-                //check that delivery team is included in project
-                require.using("Delivery team must be a participant in project.",
-                        outputProjectState.getDeliveryTeams().contains(outputAllocationState.getDeliveryTeam()));
-
-                return null;
-            });
-
+            verifyUpdateAllocation(tx);
         }else{
             throw new IllegalArgumentException("Unrecognised command");
         }
     }
 
+    private static void verifyCreate(LedgerTransaction tx) {
+        require(tx.getInputs().size() == 1,
+                "Only one input state should be consumed when creating a project.");
+        require(tx.getOutputs().size() == 2,
+                "Two output states should be created.");
+
+        final DemandState inputDemandState = firstInput(tx, DemandState.class);
+        ProjectState outputProjectState = null;
+        DemandState outputDemandState = null;
+        for(TransactionState<ContractState> output : tx.getOutputs()){
+            final ContractState state = output.getData();
+            if(outputProjectState == null && state instanceof ProjectState){
+                outputProjectState = (ProjectState) state;
+            }else if(outputDemandState == null && state instanceof DemandState){
+                outputDemandState = (DemandState) state;
+            }
+        }
+        require(inputDemandState != null,
+                "There must be a Demand input.");
+        require(outputProjectState != null,
+                "There must be a Project output.");
+        require(outputDemandState != null,
+                "There must be a Demand output.");
+
+        requireProjectFieldsExist(outputProjectState);
+        require(outputProjectState.getStartDate().isBefore(outputProjectState.getEndDate()),
+                "The startDate should not be equal to or later than end date.");
+        require(outputProjectState.getProjectCode() != null,
+                "Project code must exist.");
+        require(outputProjectState.getAllocationKey() != null,
+                "Allocation key must exist.");
+        require(outputProjectState.getBudget() > 0,
+                "Budget must be > 0.");
+
+        //CHECK INPUT AGAINST OUTPUT
+        require(outputProjectState.getDescription().equals(inputDemandState.getDescription()),
+                "Input description must be equal to output description");
+        require(outputProjectState.getSponsor().equals(inputDemandState.getSponsor()),
+                "Input sponsor must be equal to output sponsor");
+        require(outputProjectState.getPlatformLead().equals(inputDemandState.getPlatformLead()),
+                "Input platform lead must be equal to output platform lead");
+
+        //CHECK BOTH OUTPUTS
+        require(outputProjectState.getDescription().equals(outputDemandState.getDescription()),
+                "Description of Demand output must be equal to description of Project output");
+        require(outputProjectState.getSponsor().equals(outputDemandState.getSponsor()),
+                "Sponsor of Demand output must be equal to sponsor of Project output");
+        require(outputProjectState.getPlatformLead().equals(outputDemandState.getPlatformLead()),
+                "Platform lead of Demand output must be equal to platform lead of Project output");
+        require(outputProjectState.getStartDate().equals(outputDemandState.getStartDate()),
+                "Start date of Demand output must be equal to start date of Project output");
+        require(outputProjectState.getEndDate().equals(outputDemandState.getEndDate()),
+                "End date of Demand output must be equal to end date of Project output");
+        require(outputProjectState.getBudget() == outputDemandState.getAmount(),
+                "Amount of Demand output must be equal to budget of Project output");
+
+        final List<Party> approvalParties = outputDemandState.getApprovalParties();
+        require(approvalParties.contains(outputProjectState.getCoo()) && approvalParties.contains(outputProjectState.getCio()),
+                "Approval parties of Demand output must contain CIO and COO of Project output");
+    }
+
+    private static void verifyUpdateBudget(LedgerTransaction tx) {
+        require(tx.getInputs().size() == 1,
+                "Only one input state should be consumed when creating a project.");
+
+        final ProjectState inputProjectState = firstInput(tx, ProjectState.class);
+        ProjectState outputProjectState = null;
+        final List<AllocationState> outputAllocationStates = new ArrayList<>(tx.getOutputs().size());
+        //a long, so that many large allocation amounts cannot wrap around to a small budget deduction
+        long allocatedAmount = 0;
+        for(TransactionState<ContractState> output : tx.getOutputs()){
+            final ContractState state = output.getData();
+            if(state instanceof AllocationState){
+                final AllocationState outputAllocationState = (AllocationState) state;
+                outputAllocationStates.add(outputAllocationState);
+                allocatedAmount += outputAllocationState.getAllocationAmount();
+            }else if(outputProjectState == null && state instanceof ProjectState){
+                outputProjectState = (ProjectState) state;
+            }
+        }
+        require(!outputAllocationStates.isEmpty(),
+                "There must be an Allocation output.");
+        require(tx.getOutputs().size() == outputAllocationStates.size() + 1,
+                "One Project output and the Allocation outputs should be created.");
+        require(inputProjectState != null,
+                "There must be a Project input.");
+        require(outputProjectState != null,
+                "There must be a Project output.");
+
+        requireProjectUnchanged(inputProjectState, outputProjectState);
+
+        //check that every delivery team is included in project; a set saves rescanning the team list per allocation
+        final List<Party> deliveryTeams = outputProjectState.getDeliveryTeams();
+        final Collection<Party> projectTeams = outputAllocationStates.size() > 1 ? new HashSet<>(deliveryTeams) : deliveryTeams;
+        for(AllocationState outputAllocationState : outputAllocationStates){
+            require(projectTeams.contains(outputAllocationState.getDeliveryTeam()),
+                    "Delivery team must be a participant in project.");
+        }
+
+        //check output project budget = input project budget - allocated amount
+        require(outputProjectState.getBudget() == ((long) inputProjectState.getBudget() - allocatedAmount),
+                "Remaining budget must be equal to (input project budget - allocated amount).");
+    }
+
+    private static void verifyUpdateAllocation(LedgerTransaction tx) {
+        require(tx.getInputs().size() == 2,
+                "Two input states should be consumed when updating an allocation.");
+        require(tx.getOutputs().size() == 2,
+                "Two output states should be created.");
+
+        ProjectState inputProjectState = null;
+        AllocationState inputAllocationState = null;
+        for(StateAndRef<ContractState> input : tx.getInputs()){
+            final ContractState state = input.getState().getData();
+            if(inputProjectState == null && state instanceof ProjectState){
+                inputProjectState = (ProjectState) state;
+            }else if(inputAllocationState == null && state instanceof AllocationState){
+                inputAllocationState = (AllocationState) state;
+            }
+        }
+        ProjectState outputProjectState = null;
+        AllocationState outputAllocationState = null;
+        for(TransactionState<ContractState> output : tx.getOutputs()){
+            final ContractState state = output.getData();
+            if(outputProjectState == null && state instanceof ProjectState){
+                outputProjectState = (ProjectState) state;
+            }else if(outputAllocationState == null && state instanceof AllocationState){
+                outputAllocationState = (AllocationState) state;
+            }
+        }
+
+        require(inputProjectState != null,
+                "There must be a Project input.");
+        require(inputAllocationState != null,
+                "There must be an Allocation input.");
+        require(outputProjectState != null,
+                "There must be a Project output.");
+        require(outputAllocationState != null,
+                "There must be an Allocation output.");
+
+        requireProjectUnchanged(inputProjectState, outputProjectState);
+
+        //same members, compared through a set rather than a containsAll scan of the list
+        final List<Party> outputDeliveryTeams = outputProjectState.getDeliveryTeams();
+        final List<Party> inputDeliveryTeams = inputProjectState.getDeliveryTeams();
+        require(outputDeliveryTeams.size() == inputDeliveryTeams.size() && new HashSet<>(outputDeliveryTeams).containsAll(inputDeliveryTeams),
+                "Input delivery teams must be equal to output delivery teams");
+
+        //check output project budget = input project budget - allocation amount
+        require(outputProjectState.getBudget() == ((long) inputProjectState.getBudget() + inputAllocationState.getAllocationAmount() - outputAllocationState.getAllocationAmount()),
+                "Remaining budget must be equal to (input project budget + input allocation amount - output allocation amount).");
+
+        //check that delivery team is included in project
+        require(outputDeliveryTeams.contains(outputAllocationState.getDeliveryTeam()),
+                "Delivery team must be a participant in project.");
+    }
+
+    private static void requireProjectFieldsExist(ProjectState outputProjectState) {
+        require(outputProjectState.getSponsor() != null,
+                "Sponsor must exist.");
+        require(outputProjectState.getPlatformLead() != null,
+                "Platform Lead must exist.");
+        require(outputProjectState.getCio() != null,
+                "CIO must exist.");
+        require(outputProjectState.getCoo() != null,
+                "COO must exist.");
+
+        require(!outputProjectState.getDescription().isEmpty(),
+                "Description must exist.");
+        require(outputProjectState.getStartDate() != null,
+                "Start date must exist.");
+        require(outputProjectState.getEndDate() != null,
+                "End date must exist.");
+    }
+
+    /** The checks shared by the update commands: only the budget and the delivery teams of a project may change. */
+    private static void requireProjectUnchanged(ProjectState inputProjectState, ProjectState outputProjectState) {
+        requireProjectFieldsExist(outputProjectState);
+        require(outputProjectState.getProjectCode() != null,
+                "Project code must exist.");
+        require(outputProjectState.getAllocationKey() != null,
+                "Allocation key must exist.");
+        require(outputProjectState.getBudget() >= 0,
+                "Remaining Budget must not be negative.");
+
+        //check input against output
+        require(outputProjectState.getDescription().equals(inputProjectState.getDescription()),
+                "Input description must be equal to output description");
+        require(outputProjectState.getStartDate().equals(inputProjectState.getStartDate()),
+                "Input start date must be equal to output start date");
+        require(outputProjectState.getEndDate().equals(inputProjectState.getEndDate()),
+                "Input end date must be equal to output end date");
+        require(outputProjectState.getProjectCode().equals(inputProjectState.getProjectCode()),
+                "Input project code must be equal to output project code");
+        require(outputProjectState.getAllocationKey().equals(inputProjectState.getAllocationKey()),
+                "Input allocation key must be equal to output allocation key");
+        require(outputProjectState.getSponsor().equals(inputProjectState.getSponsor()),
+                "Input sponsor must be equal to output sponsor");
+        require(outputProjectState.getPlatformLead().equals(inputProjectState.getPlatformLead()),
+                "Input platform lead must be equal to output platform lead");
+        require(outputProjectState.getCio().equals(inputProjectState.getCio()),
+                "Input cio must be equal to output cio");
+        require(outputProjectState.getCoo().equals(inputProjectState.getCoo()),
+                "Input coo must be equal to output coo");
+    }
+
+    private static <T extends ContractState> T firstInput(LedgerTransaction tx, Class<T> type) {
+        for(StateAndRef<ContractState> input : tx.getInputs()){
+            final ContractState state = input.getState().getData();
+            if(type.isInstance(state)){
+                return type.cast(state);
+            }
+        }
+        return null;
+    }
+
+    /** Same failure as {@code require.using} inside {@code requireThat}, without building the message up front. */
+    private static void require(boolean condition, String message) {
+        if(!condition){
+            throw new IllegalArgumentException("Failed requirement: " + message);
+        }
+    }
+
     public interface Commands extends CommandData {
         class Create implements Commands {}
         class UpdateBudget implements Commands {}
@@ -0,0 +1,66 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.state.AllocationState;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.SignTransactionFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.util.List;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Signs an allocation transaction for a delivery team, the platform lead or the COO. The allocations made to this
+ * node's delivery team are checked against the team's limits. The Acceptors of BulkAllocationFlow and
+ * AllocationUpdateFlow extend it.
+ */
+abstract class AllocationAcceptor extends TimedFlowLogic<SignedTransaction> {
+    private final FlowSession otherPartyFlow;
+
+    AllocationAcceptor(FlowSession otherPartyFlow) {
+        this.otherPartyFlow = otherPartyFlow;
+    }
+
+    @Suspendable
+    @Override
+    protected SignedTransaction timedCall() throws FlowException {
+        class SignTxFlow extends SignTransactionFlow{
+            private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker){
+                super(otherPartyFlow, progressTracker);
+            }
+
+            @Override
+            protected void checkTransaction(SignedTransaction stx) throws FlowException {
+                requireThat(require -> {
+                    final Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+                    final List<AllocationState> allocations = stx.getTx().outputsOfType(AllocationState.class);
+                    require.using("This must be an Allocation transaction.", !allocations.isEmpty());
+
+                    //add delivery team validation here, against the allocations made to this team only
+                    String party = me.getName().getOrganisation();
+                    for(AllocationState allocationState : allocations){
+                        if(!allocationState.getDeliveryTeam().equals(me)){
+                            continue;
+                        }
+
+                        if("DLTeam1".equals(party)){
+                            require.using("Delivery Team 1 does not accept an allocation amount of more than 100,000.", allocationState.getAllocationAmount() <= 100000);
+                        }
+
+                        if("DLTeam2".equals(party)){
+                            require.using("Delivery Team 2 does not accept an allocation amount of more than 80,000.", allocationState.getAllocationAmount() <= 80000);
+                        }
+                    }
+
+                    return null;
+                });
+            }
+        }
+
+        return timedSubFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+    }
+}
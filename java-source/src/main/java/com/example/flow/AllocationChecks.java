@@ -0,0 +1,54 @@
+package com.example.flow;
+
+import com.example.state.AllocationState;
+import com.example.state.ProjectState;
+import com.example.util.AllocationQueryUtil;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.flows.FlowException;
+import net.corda.core.node.ServiceHub;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+
+import java.util.List;
+
+/**
+ * Vault lookups and validations shared by BulkAllocationFlow, which AllocationFlow runs with a single allocation,
+ * and AllocationUpdateFlow.
+ */
+class AllocationChecks {
+    static StateAndRef<ProjectState> getProjectStateByLinearId(ServiceHub serviceHub, UniqueIdentifier linearId) throws FlowException {
+        QueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria(
+                null,
+                ImmutableList.of(linearId),
+                Vault.StateStatus.UNCONSUMED,
+                null);
+
+        List<StateAndRef<ProjectState>> projects = serviceHub.getVaultService().queryBy(ProjectState.class, queryCriteria).getStates();
+
+        if (projects.size() != 1) {
+            throw new FlowException(String.format("Project with id %s not found.", linearId));
+        }
+        return projects.get(0);
+    }
+
+    /**
+     * Validates the allocation against the existing allocations so that similar DL Team should not have overlap
+     * allocation dates. The allocation being updated, if any, is not compared with itself.
+     */
+    static void validateDLTeamAllocationDates(ServiceHub serviceHub, AllocationState newAllocationState,
+                                              UniqueIdentifier excludedLinearId) throws FlowException {
+        //retrieve only the allocations of the DL team on this project whose dates overlap
+        QueryCriteria queryCriteria = AllocationQueryUtil.overlappingAllocationsCriteria(
+                newAllocationState.getDeliveryTeam(), newAllocationState.getProjectCode(),
+                newAllocationState.getStartDate(), newAllocationState.getEndDate(), excludedLinearId);
+        List<StateAndRef<AllocationState>> overlappingAllocations = serviceHub.getVaultService()
+                .queryBy(AllocationState.class, queryCriteria, new PageSpecification(1, 1)).getStates();
+
+        if(!overlappingAllocations.isEmpty()){
+            throw new FlowException("Dates specified must not overlap with existing allocation for delivery team.");
+        }
+    }
+}
@@ -5,11 +5,9 @@ import com.example.contract.AllocationContract;
 import com.example.contract.ProjectContract;
 import com.example.state.AllocationState;
 import com.example.state.ProjectState;
-import com.example.util.DateUtil;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import net.corda.core.contracts.Command;
-import net.corda.core.contracts.ContractState;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.flows.*;
@@ -27,12 +25,11 @@ import java.util.stream.Collectors;
 
 import static com.example.contract.AllocationContract.ALLOCATION_CONTRACT_ID;
 import static com.example.contract.ProjectContract.PROJECT_CONTRACT_ID;
-import static net.corda.core.contracts.ContractsDSL.requireThat;
 
 public class AllocationUpdateFlow {
     @InitiatingFlow
     @StartableByRPC
-    public static class Initiator extends FlowLogic<SignedTransaction>{
+    public static class Initiator extends TimedFlowLogic<SignedTransaction>{
         private final UniqueIdentifier allocationLinearId;
         private final int amount;
         private final LocalDateTime startDate;
@@ -72,8 +69,7 @@ public class AllocationUpdateFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction timedCall() throws FlowException {
             final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
 
             // Stage 1. Retrieve allocation specified by linearId from the vault.
@@ -91,6 +87,12 @@ public class AllocationUpdateFlow {
                     getProjectStateByProjectCodeAndDeliveryTeam(inputAllocationState.getProjectCode(), deliveryTeam);
             final ProjectState inputProjectState = inputProjectStateAndRef.getState().getData();
 
+            // The allocation and its project were created together, so they share the lineage's notary.
+            final Party notary = inputProjectStateAndRef.getState().getNotary();
+            if (!notary.equals(inputAllocationStateAndRef.getState().getNotary())) {
+                throw new FlowException("Allocation and project are assigned to different notaries.");
+            }
+
             // Stage 3. This flow can only be initiated by COO
             if(!initiatorParty.equals(coo)){
                 throw new FlowException("Update allocation flow must be initiated by COO only.");
@@ -112,7 +114,7 @@ public class AllocationUpdateFlow {
 
             // Stage 6. Validate output allocation state against other allocations so that similar DL Team
             // should not have overlap allocation dates
-            validateDLTeamAllocationDates(outputAllocationState);
+            AllocationChecks.validateDLTeamAllocationDates(getServiceHub(), outputAllocationState, outputAllocationState.getLinearId());
 
             // Stage 7. Create transaction builder
             final TransactionBuilder txBuilder = new TransactionBuilder(notary)
@@ -180,81 +182,12 @@ public class AllocationUpdateFlow {
             }
             return projects.get(0);
         }
-
-        private void validateDLTeamAllocationDates(AllocationState newAllocationState) throws FlowException {
-            final Party dlTeam = newAllocationState.getDeliveryTeam();
-            final LocalDateTime startDate = newAllocationState.getStartDate();
-            final LocalDateTime endDate = newAllocationState.getEndDate();
-            final String projectCode = newAllocationState.getProjectCode();
-
-            //retrieve all allocations with DL Team
-            QueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria(
-                    ImmutableList.of(dlTeam),
-                    null,
-                    Vault.StateStatus.UNCONSUMED,
-                    null);
-            List<StateAndRef<AllocationState>> allocations = getServiceHub().getVaultService().queryBy(AllocationState.class, queryCriteria).getStates();
-
-            //loop through allocations of DL team
-            for(StateAndRef<AllocationState> allocationStateStateAndRef : allocations){
-                AllocationState allocationState = allocationStateStateAndRef.getState().getData();
-
-                //validate allocation dates if DL teams and project code are equal and not current allocation
-                if(allocationState.getDeliveryTeam().equals(dlTeam) &&
-                        allocationState.getProjectCode().equals(projectCode) &&
-                        !allocationState.getLinearId().equals(newAllocationState.getLinearId())){
-                    LocalDateTime startDateToCheck = allocationState.getStartDate();
-                    LocalDateTime endDateToCheck = allocationState.getEndDate();
-
-                    //check overlap of start and end date
-                    if(DateUtil.checkOverlappingDatePeriod(startDate, endDate, startDateToCheck, endDateToCheck)){
-                        throw new FlowException("Dates specified must not overlap with existing allocation for delivery team.");
-                    }
-                }
-            }
-        }
     }
 
     @InitiatedBy(Initiator.class)
-    public static class Acceptor extends FlowLogic<SignedTransaction>{
-
-        private final FlowSession otherPartyFlow;
-
+    public static class Acceptor extends AllocationAcceptor {
         public Acceptor(FlowSession otherPartyFlow) {
-            this.otherPartyFlow = otherPartyFlow;
-        }
-
-        @Suspendable
-        @Override
-        public SignedTransaction call() throws FlowException {
-            class SignTxFlow extends SignTransactionFlow{
-                private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker){
-                    super(otherPartyFlow, progressTracker);
-                }
-
-                @Override
-                protected void checkTransaction(SignedTransaction stx) throws FlowException {
-                    requireThat(require -> {
-                        ContractState output = stx.getTx().getOutputs().get(0).getData();
-                        require.using("There must be an Allocation output.", output instanceof AllocationState);
-                        AllocationState allocationState = (AllocationState) output;
-
-                        //add delivery team validation here
-                        String party = getServiceHub().getMyInfo().getLegalIdentities().get(0).getName().getOrganisation();
-                        if("DLTeam1".equals(party)){
-                            require.using("Delivery Team 1 does not accept an allocation amount of more than 100,000.", allocationState.getAllocationAmount() <= 100000);
-                        }
-
-                        if("DLTeam2".equals(party)){
-                            require.using("Delivery Team 2 does not accept an allocation amount of more than 80,000.", allocationState.getAllocationAmount() <= 80000);
-                        }
-
-                        return null;
-                    });
-                }
-            }
-
-            return subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+            super(otherPartyFlow);
         }
     }
 }
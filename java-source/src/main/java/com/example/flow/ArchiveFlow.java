@@ -0,0 +1,35 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.ArchiveService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.flows.StartableByService;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Moves project, allocation and demand versions consumed more than the given number of days ago into the archive
+ * tier, returning how many rows were moved per table. ArchiveService starts it on a timer; it can also be started
+ * over RPC.
+ */
+@StartableByRPC
+@StartableByService
+public class ArchiveFlow extends FlowLogic<Map<String, Integer>> {
+    private final int olderThanDays;
+
+    public ArchiveFlow(int olderThanDays) {
+        this.olderThanDays = olderThanDays;
+    }
+
+    @Suspendable
+    @Override
+    public Map<String, Integer> call() throws FlowException {
+        if (olderThanDays < 0) {
+            throw new FlowException("The age of archived states must not be negative.");
+        }
+        return getServiceHub().cordaService(ArchiveService.class).archive(Duration.ofDays(olderThanDays));
+    }
+}
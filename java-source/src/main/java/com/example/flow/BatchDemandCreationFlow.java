@@ -0,0 +1,185 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.DemandContract;
+import com.example.service.NotarySelectionService;
+import com.example.state.DemandState;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.util.*;
+
+import static com.example.contract.DemandContract.DEMAND_CONTRACT_ID;
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Creates several demands at once, for one or more platform leads. All the demands are issued in a single
+ * transaction, so signatures are collected from each platform lead once and the transaction is notarised once for
+ * the whole batch. The demands are output in the order they were requested.
+ *
+ * Every platform lead signs and records the whole transaction, so a batch for several platform leads shows each of
+ * them the others' demands. DemandApi therefore starts one batch per platform lead.
+ */
+public class BatchDemandCreationFlow {
+    @CordaSerializable
+    public static class DemandRequest {
+        private final String description;
+        private final Party platformLead;
+
+        public DemandRequest(String description, Party platformLead) {
+            this.description = description;
+            this.platformLead = platformLead;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public Party getPlatformLead() {
+            return platformLead;
+        }
+    }
+
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends TimedFlowLogic<SignedTransaction>{
+        private final List<DemandRequest> demandRequests;
+
+        private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction based on new demands.");
+        private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private final ProgressTracker.Step GATHERING_SIGS = new ProgressTracker.Step("Gathering the platform leads' signatures.") {
+            @Override public ProgressTracker childProgressTracker() {
+                return CollectSignaturesFlow.Companion.tracker();
+            }
+        };
+        private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and recording transaction.") {
+            @Override public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGS,
+                FINALISING_TRANSACTION
+        );
+
+        public Initiator(List<DemandRequest> demandRequests) {
+            this.demandRequests = demandRequests;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        protected SignedTransaction timedCall() throws FlowException {
+            final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+
+            if(demandRequests == null || demandRequests.isEmpty()){
+                throw new FlowException("At least one demand must be requested.");
+            }
+
+            // Stage 1. Create a demand per request, with the initiator as sponsor.
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final List<DemandState> demandStates = new ArrayList<>();
+            final Set<Party> platformLeads = new LinkedHashSet<>();
+            for(DemandRequest request : demandRequests){
+                demandStates.add(new DemandState(request.getDescription(), initiatorParty, request.getPlatformLead()));
+                platformLeads.add(request.getPlatformLead());
+            }
+
+            // Stage 2. The whole batch goes to the notary assigned to its first demand's lineage.
+            final Party notary = getServiceHub().cordaService(NotarySelectionService.class).notaryFor(demandStates.get(0).getLinearId());
+
+            // Stage 3. Create a single Create command signed by the sponsor and every platform lead.
+            final List<PublicKey> signers = new ArrayList<>();
+            signers.add(initiatorParty.getOwningKey());
+            platformLeads.forEach(platformLead -> signers.add(platformLead.getOwningKey()));
+            final Command<DemandContract.Commands.Create> txCommand = new Command<>(new DemandContract.Commands.Create(), signers);
+
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary).addCommand(txCommand);
+            demandStates.forEach(demandState -> txBuilder.addOutputState(demandState, DEMAND_CONTRACT_ID));
+
+            // Stage 4. Verify that the transaction is valid.
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            // Stage 5. Sign the transaction.
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partSignedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            // Stage 6. Gather signatures from every platform lead in one round.
+            progressTracker.setCurrentStep(GATHERING_SIGS);
+            final Set<FlowSession> sessions = new HashSet<>();
+            for(Party platformLead : platformLeads){
+                sessions.add(initiateFlow(platformLead));
+            }
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesFlow(partSignedTx, sessions, CollectSignaturesFlow.Companion.tracker()));
+
+            // Stage 7. Notarise and record the transaction in all parties' vaults.
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            return subFlow(new FinalityFlow(fullySignedTx));
+        }
+    }
+
+    @InitiatedBy(Initiator.class)
+    public static class Acceptor extends TimedFlowLogic<SignedTransaction>{
+
+        private final FlowSession otherPartyFlowSession;
+
+        public Acceptor(FlowSession otherPartyFlowSession) {
+            this.otherPartyFlowSession = otherPartyFlowSession;
+        }
+
+        @Suspendable
+        @Override
+        protected SignedTransaction timedCall() throws FlowException {
+            class SignTxFlow extends SignTransactionFlow {
+
+                private SignTxFlow(FlowSession otherSideSession, ProgressTracker progressTracker) {
+                    super(otherSideSession, progressTracker);
+                }
+
+                @Override
+                protected void checkTransaction(SignedTransaction stx) throws FlowException {
+                    requireThat(require -> {
+                        final Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+                        final Party sponsor = otherPartyFlowSession.getCounterparty();
+                        final List<Command<?>> commands = stx.getTx().getCommands();
+                        require.using("This must be a Demand creation transaction.",
+                                commands.size() == 1 && commands.get(0).getValue() instanceof DemandContract.Commands.Create);
+
+                        boolean demandForMe = false;
+                        for(TransactionState<ContractState> output : stx.getTx().getOutputs()){
+                            require.using("Every output must be a Demand.", output.getData() instanceof DemandState);
+                            final DemandState demandState = (DemandState) output.getData();
+                            require.using("Every demand must be raised by the initiating sponsor.", demandState.getSponsor().equals(sponsor));
+                            demandForMe |= demandState.getPlatformLead().equals(me);
+                        }
+                        require.using("At least one demand must be for this platform lead.", demandForMe);
+
+                        //add validation for platform lead specific checks
+                        return null;
+                    });
+                }
+            }
+
+            return timedSubFlow(new SignTxFlow(otherPartyFlowSession, SignTransactionFlow.Companion.tracker()));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.AllocationContract;
+import com.example.contract.ProjectContract;
+import com.example.state.AllocationState;
+import com.example.state.ProjectState;
+import com.example.util.DateUtil;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.security.PublicKey;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.example.contract.AllocationContract.ALLOCATION_CONTRACT_ID;
+import static com.example.contract.ProjectContract.PROJECT_CONTRACT_ID;
+
+/**
+ * Allocates a project to several delivery teams at once. All the allocations are issued, and the project budget
+ * deducted, in a single transaction, so the ProjectState is consumed once and signatures are collected and the
+ * transaction notarised once for the whole batch.
+ */
+public class BulkAllocationFlow {
+    @CordaSerializable
+    public static class AllocationRequest {
+        private final Party deliveryTeam;
+        private final int amount;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+
+        public AllocationRequest(Party deliveryTeam, int amount, LocalDateTime startDate, LocalDateTime endDate) {
+            this.deliveryTeam = deliveryTeam;
+            this.amount = amount;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public Party getDeliveryTeam() {
+            return deliveryTeam;
+        }
+
+        public int getAmount() {
+            return amount;
+        }
+
+        public LocalDateTime getStartDate() {
+            return startDate;
+        }
+
+        public LocalDateTime getEndDate() {
+            return endDate;
+        }
+    }
+
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends TimedFlowLogic<SignedTransaction>{
+        private final UniqueIdentifier projectLinearId;
+        private final List<AllocationRequest> allocationRequests;
+
+        //steps
+        private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction based on new allocations.");
+        private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private final ProgressTracker.Step GATHERING_SIGS = new ProgressTracker.Step("Gathering the counterparties' signatures.");
+        private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and recording transaction.") {
+            @Override public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        //progress tracker
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGS,
+                FINALISING_TRANSACTION
+        );
+
+        public Initiator(UniqueIdentifier projectLinearId, List<AllocationRequest> allocationRequests) {
+            this.projectLinearId = projectLinearId;
+            this.allocationRequests = allocationRequests;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        protected SignedTransaction timedCall() throws FlowException {
+            final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+
+            if(allocationRequests == null || allocationRequests.isEmpty()){
+                throw new FlowException("At least one allocation must be requested.");
+            }
+
+            // Stage 1. Retrieve project specified by linearId from the vault.
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final StateAndRef<ProjectState> inputProjectStateAndRef = AllocationChecks.getProjectStateByLinearId(getServiceHub(), projectLinearId);
+            final ProjectState inputProjectState = inputProjectStateAndRef.getState().getData();
+            // The allocations stay with the notary the project lineage is assigned to.
+            final Party notary = inputProjectStateAndRef.getState().getNotary();
+
+            // Stage 2. Resolve the project lead and coo identity
+            final Party platformLead = inputProjectState.getPlatformLead();
+            final Party coo = inputProjectState.getCoo();
+
+            // Stage 3. This flow can only be initiated by the project lead.
+            if(!platformLead.equals(initiatorParty)){
+                throw new FlowException("Allocation flow must be initiated by the project lead.");
+            }
+
+            // Stage 4. Create output states, folding every allocation into a single project update
+            final List<AllocationState> outputAllocationStates = new ArrayList<>();
+            final Set<Party> deliveryTeams = new LinkedHashSet<>();
+            ProjectState outputProjectState = inputProjectState;
+            for(AllocationRequest request : allocationRequests){
+                final AllocationState outputAllocationState = new AllocationState(inputProjectState.getProjectCode(),
+                        inputProjectState.getAllocationKey(), inputProjectState.getDescription(), platformLead,
+                        request.getDeliveryTeam(), coo, request.getAmount(), request.getStartDate(), request.getEndDate());
+
+                // Stage 5. Validate each allocation against existing allocations and the rest of the batch so that
+                // similar DL Team should not have overlap allocation dates
+                AllocationChecks.validateDLTeamAllocationDates(getServiceHub(), outputAllocationState, null);
+                validateBatchAllocationDates(outputAllocationState, outputAllocationStates);
+
+                outputAllocationStates.add(outputAllocationState);
+                outputProjectState = outputProjectState.updateProjectUponNewAllocation(request.getAmount(), request.getDeliveryTeam());
+                deliveryTeams.add(request.getDeliveryTeam());
+            }
+
+            // Stage 6. Create Allocation Create Command and Project UpdateBudget Command
+            final List<PublicKey> allocationSigners = new ArrayList<>();
+            allocationSigners.add(platformLead.getOwningKey());
+            deliveryTeams.forEach(deliveryTeam -> allocationSigners.add(deliveryTeam.getOwningKey()));
+            final Command<AllocationContract.Commands.Create> allocationCreateCmd = new Command<>(
+                    new AllocationContract.Commands.Create(), allocationSigners);
+            final Command<ProjectContract.Commands.UpdateBudget> projectUpdateCmd = new Command<>(
+                    new ProjectContract.Commands.UpdateBudget(),
+                    Arrays.asList(platformLead.getOwningKey(), coo.getOwningKey()));
+
+            // Stage 7. Create transaction builder
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary)
+                    .addInputState(inputProjectStateAndRef);
+            outputAllocationStates.forEach(outputAllocationState -> txBuilder.addOutputState(outputAllocationState, ALLOCATION_CONTRACT_ID));
+            txBuilder.addOutputState(outputProjectState, PROJECT_CONTRACT_ID)
+                    .addCommand(allocationCreateCmd)
+                    .addCommand(projectUpdateCmd);
+
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            // Stage 8. Verify that the transaction is valid.
+            txBuilder.verify(getServiceHub());
+
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            // Stage 9. Sign the transaction
+            final SignedTransaction partSignedTx = getServiceHub()
+                    .signInitialTransaction(txBuilder, initiatorParty.getOwningKey());
+
+            // Stage 10. Initiate every Delivery Team's and the COO's signature flow
+            final Set<FlowSession> sessions = new HashSet<>();
+            for(Party deliveryTeam : deliveryTeams){
+                sessions.add(initiateFlow(deliveryTeam));
+            }
+            sessions.add(initiateFlow(coo));
+
+            progressTracker.setCurrentStep(GATHERING_SIGS);
+            // Stage 11. Gather signatures from all delivery teams and the COO in one round
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesFlow(partSignedTx, sessions, CollectSignaturesFlow.Companion.tracker()));
+
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            // Stage 12. Notarise and record the transaction in all involved parties' vaults.
+            return subFlow(new FinalityFlow(fullySignedTx));
+        }
+
+        private void validateBatchAllocationDates(AllocationState newAllocationState, List<AllocationState> batch) throws FlowException {
+            for(AllocationState allocationState : batch){
+                if(allocationState.getDeliveryTeam().equals(newAllocationState.getDeliveryTeam()) &&
+                        DateUtil.checkOverlappingDatePeriod(newAllocationState.getStartDate(), newAllocationState.getEndDate(),
+                                allocationState.getStartDate(), allocationState.getEndDate())){
+                    throw new FlowException("Dates specified must not overlap with another allocation for the same delivery team.");
+                }
+            }
+        }
+    }
+
+    @InitiatedBy(Initiator.class)
+    public static class Acceptor extends AllocationAcceptor {
+        public Acceptor(FlowSession otherPartyFlow) {
+            super(otherPartyFlow);
+        }
+    }
+}
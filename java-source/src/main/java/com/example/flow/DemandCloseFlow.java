@@ -0,0 +1,100 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.DemandContract;
+import com.example.state.DemandState;
+import com.example.util.DateUtil;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+
+import java.time.Instant;
+import java.util.Collections;
+
+/**
+ * Consumes a demand whose end date has passed, without replacing it, so that expired demands stop showing
+ * up in unconsumed queries.
+ *
+ * DemandState schedules this flow on the sponsor's node, DateUtil.CLOSE_TOLERANCE after the start of the day
+ * following its end date, so that a notary clock slightly behind the node's still accepts the time window; the
+ * other participants receive the transaction through finality. It can also be started over RPC by the sponsor, for
+ * demands recorded before they were schedulable.
+ */
+public class DemandCloseFlow {
+    @InitiatingFlow
+    @SchedulableFlow
+    @StartableByRPC
+    public static class Initiator extends TimedFlowLogic<SignedTransaction> {
+        private final StateRef demandRef;
+
+        private final ProgressTracker.Step GENERATING_TRANSACTION = new ProgressTracker.Step("Generating transaction closing the demand.");
+        private final ProgressTracker.Step VERIFYING_TRANSACTION = new ProgressTracker.Step("Verifying contract constraints.");
+        private final ProgressTracker.Step SIGNING_TRANSACTION = new ProgressTracker.Step("Signing transaction with our private key.");
+        private final ProgressTracker.Step FINALISING_TRANSACTION = new ProgressTracker.Step("Obtaining notary signature and recording transaction.") {
+            @Override public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                FINALISING_TRANSACTION
+        );
+
+        public Initiator(StateRef demandRef) {
+            this.demandRef = demandRef;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        protected SignedTransaction timedCall() throws FlowException {
+            final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+
+            // Stage 1. Retrieve the demand; only its sponsor closes it.
+            final StateAndRef<DemandState> demandStateAndRef = getServiceHub().toStateAndRef(demandRef);
+            final DemandState demandState = demandStateAndRef.getState().getData();
+            if (!demandState.getSponsor().equals(initiatorParty)) {
+                return null;
+            }
+            if (demandState.getEndDate() == null) {
+                throw new FlowException("Demand has not been approved, so it has no end date to expire on.");
+            }
+
+            // Stage 2. Consume the demand with a Close command, valid from its expiry onwards.
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final Instant expiry = DateUtil.expiryOf(demandState.getEndDate());
+            final Command<DemandContract.Commands.Close> closeCmd = new Command<>(
+                    new DemandContract.Commands.Close(),
+                    Collections.singletonList(initiatorParty.getOwningKey()));
+            final TransactionBuilder txBuilder = new TransactionBuilder(demandStateAndRef.getState().getNotary())
+                    .addInputState(demandStateAndRef)
+                    .addCommand(closeCmd);
+            txBuilder.setTimeWindow(TimeWindow.fromOnly(expiry));
+
+            // Stage 3. Verify that the transaction is valid.
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            // Stage 4. Sign the transaction.
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction signedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            // Stage 5. Notarise and record the transaction in all participants' vaults.
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            return subFlow(new FinalityFlow(signedTx));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.flow;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.DemandContract;
+import com.example.service.NotarySelectionService;
 import com.example.state.DemandState;
 import com.google.common.collect.Sets;
 import net.corda.core.contracts.Command;
@@ -21,7 +22,7 @@ import static com.example.contract.DemandContract.DEMAND_CONTRACT_ID;
 public class DemandCreationFlow {
     @InitiatingFlow
     @StartableByRPC
-    public static class Initiator extends FlowLogic<SignedTransaction>{
+    public static class Initiator extends TimedFlowLogic<SignedTransaction>{
 
         private final String description;
         private final Party platformLead;
@@ -63,15 +64,15 @@ public class DemandCreationFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-            // Obtain a reference to the notary we want to use.
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction timedCall() throws FlowException {
             final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
 
             // Stage 1.
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
             // Generate an unsigned transaction.
             DemandState demandState = new DemandState(description, initiatorParty, platformLead);
+            // Obtain the notary this new demand lineage is assigned to.
+            final Party notary = getServiceHub().cordaService(NotarySelectionService.class).notaryFor(demandState.getLinearId());
             final Command<DemandContract.Commands.Create> txCommand = new Command<>(new DemandContract.Commands.Create(),
                     demandState.getParticipants().stream().filter(Objects::nonNull).map(AbstractParty::getOwningKey).collect(Collectors.toList()));
             final TransactionBuilder txBuilder = new TransactionBuilder(notary).withItems(new StateAndContract(demandState, DEMAND_CONTRACT_ID), txCommand);
@@ -102,7 +103,7 @@ public class DemandCreationFlow {
     }
 
     @InitiatedBy(Initiator.class)
-    public static class Acceptor extends FlowLogic<SignedTransaction>{
+    public static class Acceptor extends TimedFlowLogic<SignedTransaction>{
 
         private final FlowSession otherPartyFlowSession;
 
@@ -112,7 +113,7 @@ public class DemandCreationFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
+        protected SignedTransaction timedCall() throws FlowException {
             class SignTxFlow extends SignTransactionFlow {
 
                 private SignTxFlow(FlowSession otherSideSession, ProgressTracker progressTracker) {
@@ -125,7 +126,7 @@ public class DemandCreationFlow {
                 }
             }
 
-            return subFlow(new SignTxFlow(otherPartyFlowSession, SignTransactionFlow.Companion.tracker()));
+            return timedSubFlow(new SignTxFlow(otherPartyFlowSession, SignTransactionFlow.Companion.tracker()));
         }
     }
 }
@@ -3,13 +3,15 @@ package com.example.flow;
 import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.DemandContract;
 import com.example.contract.ProjectContract;
+import com.example.service.ProjectCodeSequenceService;
+import com.example.service.RoleDirectoryService;
 import com.example.state.DemandState;
 import com.example.state.ProjectState;
+import com.example.util.RoleDirectory;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import net.corda.core.contracts.*;
 import net.corda.core.flows.*;
-import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.node.services.Vault;
 import net.corda.core.node.services.vault.QueryCriteria;
@@ -22,7 +24,6 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.example.contract.DemandContract.DEMAND_CONTRACT_ID;
 import static com.example.contract.ProjectContract.PROJECT_CONTRACT_ID;
@@ -32,7 +33,7 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
 public class DemandUpdateFlow {
     @InitiatingFlow
     @StartableByRPC
-    public static class Initiator extends FlowLogic<SignedTransaction>{
+    public static class Initiator extends TimedFlowLogic<SignedTransaction>{
         private final LocalDateTime startDate;
         private final LocalDateTime endDate;
         private final int amount;
@@ -87,9 +88,7 @@ public class DemandUpdateFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-            // Obtain a reference to the notary we want to use.
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+        protected SignedTransaction timedCall() throws FlowException {
             final Party initiatorParty = getServiceHub().getMyInfo().getLegalIdentities().get(0);
 
             // Stage 1. Retrieve Demand specified by linearId from the vault.
@@ -97,6 +96,8 @@ public class DemandUpdateFlow {
 
             final StateAndRef<DemandState> demandStateUpd = getDemandStateByLinearId(linearId);
             final DemandState currentDemandState = demandStateUpd.getState().getData();
+            // The project stays with the notary the demand lineage is assigned to.
+            final Party notary = demandStateUpd.getState().getNotary();
 
             // Stage 2. Resolve sponsor and platform lead identity
             final Party platformLead = currentDemandState.getPlatformLead();
@@ -104,14 +105,9 @@ public class DemandUpdateFlow {
             final PublicKey sponsorKey = sponsor.getOwningKey();
             final PublicKey platformLeadKey = platformLead.getOwningKey();
 
-            CordaX500Name cioName = new CordaX500Name("CIO", "Singapore", "SG");
-            CordaX500Name cooName = new CordaX500Name("COO", "Singapore", "SG");
-//            CordaX500Name dl1Name = new CordaX500Name("DLTeam1", "Singapore", "SG");
-
-
-            final Party cio = getServiceHub().getIdentityService().wellKnownPartyFromX500Name(cioName);
-            final Party coo = getServiceHub().getIdentityService().wellKnownPartyFromX500Name(cooName);
-//            final Party dl1 = getServiceHub().getIdentityService().wellKnownPartyFromX500Name(dl1Name);
+            final RoleDirectoryService roleDirectory = getServiceHub().cordaService(RoleDirectoryService.class);
+            final Party cio = roleDirectory.partyOf(RoleDirectory.Role.CIO);
+            final Party coo = roleDirectory.partyOf(RoleDirectory.Role.COO);
 
             final PublicKey cioKey = cio.getOwningKey();
             final PublicKey cooKey = coo.getOwningKey();
@@ -127,8 +123,9 @@ public class DemandUpdateFlow {
             final Command<ProjectContract.Commands.Create> txCommandApprove = new Command<>(new ProjectContract.Commands.Create(), Arrays.asList(cioKey, cooKey));
 
             //Stage 5. Build transaction
-            final String projectCode = generateProjectCode(initiatorParty);
-            final String allocationKey = generateAllocationKey(initiatorParty);
+            final int sequence = getServiceHub().cordaService(ProjectCodeSequenceService.class).next(initiatorParty);
+            final String projectCode = generateProjectCode(initiatorParty, sequence);
+            final String allocationKey = generateAllocationKey(initiatorParty, sequence);
 
             final ProjectState projectState = new ProjectState(projectCode, allocationKey
                     , newUpdatedDemand.getDescription()
@@ -163,10 +160,7 @@ public class DemandUpdateFlow {
             return subFlow(new FinalityFlow(fullySignedTx));
         }
 
-        private String generateProjectCode(Party initiatingPlatformLead){
-            List<String> projectCodes = retrieveAllProjectsCodesWithPlatformLead(initiatingPlatformLead);
-            int index = projectCodes.size() + 1;
-
+        private String generateProjectCode(Party initiatingPlatformLead, int index){
             StringBuilder sb = new StringBuilder();
             sb.append("P");
             sb.append(initiatingPlatformLead.getName().getOrganisation().substring(2,3));
@@ -177,10 +171,7 @@ public class DemandUpdateFlow {
             return sb.toString();
         }
 
-        private String generateAllocationKey(Party initiatingPlatformLead){
-            List<String> projectCodes = retrieveAllProjectsCodesWithPlatformLead(initiatingPlatformLead);
-            int index = projectCodes.size() + 1;
-
+        private String generateAllocationKey(Party initiatingPlatformLead, int index){
             StringBuilder sb = new StringBuilder();
             sb.append("A");
             sb.append(initiatingPlatformLead.getName().getOrganisation().substring(2,3));
@@ -190,28 +181,10 @@ public class DemandUpdateFlow {
             sb.append(index);
             return sb.toString();
         }
-
-        private List<String> retrieveAllProjectsCodesWithPlatformLead(Party platformLead){
-            //retrieve all projects with DL Team
-            QueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria(
-                    ImmutableList.of(platformLead),
-                    null,
-                    Vault.StateStatus.ALL,
-                    null);
-            List<StateAndRef<ProjectState>> projects = getServiceHub().getVaultService().queryBy(ProjectState.class, queryCriteria).getStates();
-
-            //return list of project codes
-            return projects.stream()
-                    .map(StateAndRef::getState)
-                    .map(TransactionState::getData)
-                    .map(ProjectState::getProjectCode)
-                    .distinct()
-                    .collect(Collectors.toList());
-        }
     }
 
     @InitiatedBy(Initiator.class)
-    public static class Acceptor extends FlowLogic<SignedTransaction>{
+    public static class Acceptor extends TimedFlowLogic<SignedTransaction>{
 
         private final FlowSession otherPartyFlowSession;
 
@@ -222,7 +195,7 @@ public class DemandUpdateFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
+        protected SignedTransaction timedCall() throws FlowException {
             class SignTxFlow extends SignTransactionFlow {
                 private SignTxFlow(FlowSession otherSideSession, ProgressTracker progressTracker) {
                     super(otherSideSession, progressTracker);
@@ -230,8 +203,9 @@ public class DemandUpdateFlow {
 
                 @Override
                 protected void checkTransaction(SignedTransaction stx) throws FlowException {
-                    String party = getServiceHub().getMyInfo().getLegalIdentities().get(0).getName().getOrganisation();
-                    if ("COO".equals(party)) {
+                    final RoleDirectoryService roleDirectory = getServiceHub().cordaService(RoleDirectoryService.class);
+                    final Party party = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+                    if (roleDirectory.hasRole(party, RoleDirectory.Role.COO)) {
                         requireThat(require -> {
                             ContractState outputContractState = stx.getTx().getOutputs().get(1).getData();
                             require.using("This must be a Project creation flow", outputContractState instanceof ProjectState);
@@ -240,7 +214,7 @@ public class DemandUpdateFlow {
                             return null;
                         });
                     }
-                    if("CIO".equals(party)) {
+                    if(roleDirectory.hasRole(party, RoleDirectory.Role.CIO)) {
                         requireThat(require -> {
                             ContractState outputContractState = stx.getTx().getOutputs().get(1).getData();
                             require.using("This must be a Project creation flow", outputContractState instanceof ProjectState);
@@ -261,7 +235,7 @@ public class DemandUpdateFlow {
                 }
             }
 
-            return subFlow(new SignTxFlow(otherPartyFlowSession, SignTransactionFlow.Companion.tracker()));
+            return timedSubFlow(new SignTxFlow(otherPartyFlowSession, SignTransactionFlow.Companion.tracker()));
         }
 
 
@@ -2,6 +2,7 @@ package com.example.flow;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.example.contract.IOUContract;
+import com.example.service.NotarySelectionService;
 import com.example.state.IOUState;
 import com.google.common.collect.Sets;
 import net.corda.core.contracts.Command;
@@ -27,14 +28,15 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
  * In our simple example, the [Acceptor] always accepts a valid IOU.
  * <p>
  * These flows have deliberately been implemented by using only the call() method for ease of understanding. In
- * practice we would recommend splitting up the various stages of the flow into sub-routines.
+ * practice we would recommend splitting up the various stages of the flow into sub-routines. The body of call() lives
+ * in timedCall(), which TimedFlowLogic.call() runs and times.
  * <p>
  * All methods called within the [FlowLogic] sub-class need to be annotated with the @Suspendable annotation.
  */
 public class ExampleFlow {
     @InitiatingFlow
     @StartableByRPC
-    public static class Initiator extends FlowLogic<SignedTransaction> {
+    public static class Initiator extends TimedFlowLogic<SignedTransaction> {
         
         private final int iouValue;
         private final Party otherParty;
@@ -79,14 +81,13 @@ public class ExampleFlow {
          */
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
-            // Obtain a reference to the notary we want to use.
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
-
+        protected SignedTransaction timedCall() throws FlowException {
             // Stage 1.
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
             // Generate an unsigned transaction.
             IOUState iouState = new IOUState(iouValue, getServiceHub().getMyInfo().getLegalIdentities().get(0), otherParty);
+            // Obtain the notary this new IOU is assigned to.
+            final Party notary = getServiceHub().cordaService(NotarySelectionService.class).notaryFor(iouState.getLinearId());
             final Command<IOUContract.Commands.Create> txCommand = new Command<>(new IOUContract.Commands.Create(),
                     iouState.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList()));
             final TransactionBuilder txBuilder = new TransactionBuilder(notary).withItems(new StateAndContract(iouState, IOU_CONTRACT_ID), txCommand);
@@ -118,7 +119,7 @@ public class ExampleFlow {
     }
 
     @InitiatedBy(Initiator.class)
-    public static class Acceptor extends FlowLogic<SignedTransaction> {
+    public static class Acceptor extends TimedFlowLogic<SignedTransaction> {
 
         private final FlowSession otherPartyFlow;
 
@@ -128,7 +129,7 @@ public class ExampleFlow {
 
         @Suspendable
         @Override
-        public SignedTransaction call() throws FlowException {
+        protected SignedTransaction timedCall() throws FlowException {
             class SignTxFlow extends SignTransactionFlow {
                 private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker) {
                     super(otherPartyFlow, progressTracker);
@@ -146,7 +147,7 @@ public class ExampleFlow {
                 }
             }
 
-            return subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+            return timedSubFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
         }
     }
 }
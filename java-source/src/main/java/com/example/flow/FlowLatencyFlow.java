@@ -0,0 +1,23 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.FlowMetricsService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Returns the node's per-step flow latencies recorded by FlowMetricsService, for the webserver to report.
+ */
+@StartableByRPC
+public class FlowLatencyFlow extends FlowLogic<List<Map<String, Object>>> {
+
+    @Suspendable
+    @Override
+    public List<Map<String, Object>> call() throws FlowException {
+        return getServiceHub().cordaService(FlowMetricsService.class).snapshot();
+    }
+}
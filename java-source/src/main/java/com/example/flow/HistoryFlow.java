@@ -0,0 +1,31 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.ArchiveService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Returns every version of a project, allocation or demand, from both the live and the archive tier, oldest first.
+ */
+@StartableByRPC
+public class HistoryFlow extends FlowLogic<List<Map<String, Object>>> {
+    private final ArchiveService.StateTable table;
+    private final UUID linearId;
+
+    public HistoryFlow(ArchiveService.StateTable table, UUID linearId) {
+        this.table = table;
+        this.linearId = linearId;
+    }
+
+    @Suspendable
+    @Override
+    public List<Map<String, Object>> call() throws FlowException {
+        return getServiceHub().cordaService(ArchiveService.class).history(table, linearId);
+    }
+}
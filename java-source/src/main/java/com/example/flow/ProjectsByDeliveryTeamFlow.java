@@ -0,0 +1,30 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.ProjectQueryService;
+import com.example.state.ProjectState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.identity.Party;
+
+import java.util.List;
+
+/**
+ * Returns the unconsumed projects the given delivery team works on, using the indexed ProjectSchemaV2 tables.
+ */
+@StartableByRPC
+public class ProjectsByDeliveryTeamFlow extends FlowLogic<List<StateAndRef<ProjectState>>> {
+    private final Party deliveryTeam;
+
+    public ProjectsByDeliveryTeamFlow(Party deliveryTeam) {
+        this.deliveryTeam = deliveryTeam;
+    }
+
+    @Suspendable
+    @Override
+    public List<StateAndRef<ProjectState>> call() throws FlowException {
+        return getServiceHub().cordaService(ProjectQueryService.class).projectsOfDeliveryTeam(deliveryTeam);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.SchemaBackfillService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.flows.StartableByService;
+
+import java.util.Map;
+
+/**
+ * Writes the V2 schema rows of one batch of states recorded before the V2 schemas existed, returning how many rows
+ * were written per V2 table. SchemaBackfillService starts it until nothing is left; it can also be started over RPC.
+ */
+@StartableByRPC
+@StartableByService
+public class SchemaBackfillFlow extends FlowLogic<Map<String, Integer>> {
+
+    @Suspendable
+    @Override
+    public Map<String, Integer> call() throws FlowException {
+        return getServiceHub().cordaService(SchemaBackfillService.class).backfill();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.service.FlowMetricsService;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.utilities.ProgressTracker;
+
+/**
+ * A flow whose progress tracker steps are timed by FlowMetricsService. Subclasses put their logic in timedCall():
+ * the tracker, if the flow has one, is handed to the service before timedCall() runs and moved to DONE once it
+ * returns, so that the last step and the total are recorded.
+ *
+ * Flows without a tracker of their own, such as the Acceptors, time the subflow doing their work with
+ * timedSubFlow() instead.
+ */
+public abstract class TimedFlowLogic<T> extends FlowLogic<T> {
+    @Suspendable
+    @Override
+    public final T call() throws FlowException {
+        final ProgressTracker progressTracker = getProgressTracker();
+        if (progressTracker != null) {
+            getServiceHub().cordaService(FlowMetricsService.class).track(getClass(), progressTracker);
+        }
+        final T result = timedCall();
+        if (progressTracker != null) {
+            progressTracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+        }
+        return result;
+    }
+
+    @Suspendable
+    protected abstract T timedCall() throws FlowException;
+
+    /**
+     * Runs the subflow, timing the steps of its progress tracker against this flow's class.
+     */
+    @Suspendable
+    protected <R> R timedSubFlow(FlowLogic<R> subLogic) throws FlowException {
+        final ProgressTracker subTracker = subLogic.getProgressTracker();
+        getServiceHub().cordaService(FlowMetricsService.class).track(getClass(), subTracker);
+        final R result = subFlow(subLogic);
+        subTracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+        return result;
+    }
+}
@@ -1,8 +1,19 @@
 package com.example.plugin;
 
+import com.example.api.AllocationBatcher;
 import com.example.api.DemandApi;
+import com.example.api.EventsApi;
+import com.example.api.ExportApi;
 import com.example.api.ExampleApi;
+import com.example.api.FlowStatusRegistry;
+import com.example.api.FlowsApi;
+import com.example.api.HistoryApi;
+import com.example.api.NetworkMapView;
 import com.example.api.ProjectApi;
+import com.example.api.ProjectFlowQueue;
+import com.example.api.ReadModel;
+import com.example.api.ReadModelApi;
+import com.example.api.ReportApi;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -14,10 +25,67 @@ import java.util.Map;
 import java.util.function.Function;
 
 public class ExamplePlugin implements WebServerPluginRegistry {
+    /**
+     * Flows started with async=true, shared by every API so that /api/flows can report on all of them.
+     */
+    private final FlowStatusRegistry flowStatusRegistry = new FlowStatusRegistry();
+
+    /**
+     * Serialises the flows that consume the same project, shared by every API that starts them.
+     */
+    private final ProjectFlowQueue flowQueue = new ProjectFlowQueue();
+
+    /**
+     * In-memory projection of the vault shared by the read endpoints. It needs an RPC connection, so it is built
+     * the first time an API asks for it.
+     */
+    private ReadModel readModel;
+
+    /**
+     * Network map cache behind the peer list endpoints, also built on first use.
+     */
+    private NetworkMapView networkMapView;
+
+    /**
+     * Merges single allocations for the same project into one transaction before they reach the flow queue.
+     */
+    private AllocationBatcher allocationBatcher;
+
     /**
      * A list of classes that expose web APIs.
      */
-    private final List<Function<CordaRPCOps, ?>> webApis = ImmutableList.of(DemandApi::new, ProjectApi::new);
+    private final List<Function<CordaRPCOps, ?>> webApis = ImmutableList.of(
+            rpcOps -> new ExampleApi(rpcOps, flowStatusRegistry),
+            rpcOps -> new DemandApi(rpcOps, flowStatusRegistry, readModel(rpcOps), networkMapView(rpcOps)),
+            rpcOps -> new ProjectApi(rpcOps, flowStatusRegistry, readModel(rpcOps), networkMapView(rpcOps), flowQueue,
+                    allocationBatcher(rpcOps)),
+            ExportApi::new,
+            EventsApi::new,
+            rpcOps -> new FlowsApi(rpcOps, flowStatusRegistry, flowQueue),
+            rpcOps -> new ReadModelApi(readModel(rpcOps)),
+            ReportApi::new,
+            HistoryApi::new);
+
+    private synchronized ReadModel readModel(CordaRPCOps rpcOps) {
+        if (readModel == null) {
+            readModel = new ReadModel(rpcOps);
+        }
+        return readModel;
+    }
+
+    private synchronized NetworkMapView networkMapView(CordaRPCOps rpcOps) {
+        if (networkMapView == null) {
+            networkMapView = new NetworkMapView(rpcOps);
+        }
+        return networkMapView;
+    }
+
+    private synchronized AllocationBatcher allocationBatcher(CordaRPCOps rpcOps) {
+        if (allocationBatcher == null) {
+            allocationBatcher = new AllocationBatcher(rpcOps, flowQueue);
+        }
+        return allocationBatcher;
+    }
 
     /**
      * A list of directories in the resources directory that will be served by Jetty under /web.
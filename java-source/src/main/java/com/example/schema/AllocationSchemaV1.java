@@ -6,17 +6,32 @@ import net.corda.core.schemas.PersistentState;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * The Allocation schema, indexed for the queries run against it:
+ *
+ * - allocation_team_dates_idx: the overlapping allocation check of AllocationQueryUtil.
+ * - allocation_project_team_idx: ReportApi's totals per project and per project and delivery team, covered without
+ *   reading the rows, and allocation listings sorted by project code.
+ * - allocation_start_date_idx: allocation listings sorted by start date.
+ * - allocation_linear_id_idx: the versions of one allocation, as ArchiveService.history looks them up.
+ */
 public class AllocationSchemaV1 extends MappedSchema {
     public AllocationSchemaV1(){
         super(AllocationSchema.class, 1, ImmutableList.of(PersistentAllocation.class));
     }
 
     @Entity
-    @Table(name = "Allocation")
+    @Table(name = "Allocation", indexes = {
+            @Index(name = "allocation_team_dates_idx", columnList = "deliveryTeam,projectCode,startDate,endDate"),
+            @Index(name = "allocation_project_team_idx", columnList = "projectCode,deliveryTeam,allocationAmount"),
+            @Index(name = "allocation_start_date_idx", columnList = "startDate"),
+            @Index(name = "allocation_linear_id_idx", columnList = "linearId")
+    })
     public static class PersistentAllocation extends PersistentState{
         @Column(name = "projectCode") private final String projectCode;
         @Column(name = "allocationKey") private final String allocationKey;
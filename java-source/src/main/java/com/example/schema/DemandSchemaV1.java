@@ -7,18 +7,28 @@ import net.corda.core.schemas.PersistentState;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * The Demand schema, indexed for the queries run against it:
+ *
+ * - demand_start_date_idx: demand listings sorted by start date.
+ * - demand_linear_id_idx: the versions of one demand, as ArchiveService.history looks them up.
+ */
 public class DemandSchemaV1 extends MappedSchema {
     public DemandSchemaV1(){
         super(DemandSchema.class, 1, ImmutableList.of(PersistentDemand.class));
     }
 
     @Entity
-    @Table(name = "Demand")
+    @Table(name = "Demand", indexes = {
+            @Index(name = "demand_start_date_idx", columnList = "startDate"),
+            @Index(name = "demand_linear_id_idx", columnList = "linearId")
+    })
     public static class PersistentDemand extends PersistentState {
         @Column(name = "description") private final String description;
         @Column(name = "amount") private final int amount;
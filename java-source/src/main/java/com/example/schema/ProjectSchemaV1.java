@@ -7,6 +7,7 @@ import net.corda.core.schemas.PersistentState;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -18,7 +19,9 @@ public class ProjectSchemaV1 extends MappedSchema {
     }
 
     @Entity
-    @Table(name = "Project")
+    @Table(name = "Project", indexes = {
+            @Index(name = "project_code_idx", columnList = "projectCode")
+    })
     public static class PersistentProject extends PersistentState {
         @Column(name = "projectCode") private final String projectCode;
         @Column(name = "allocationKey") private final String allocationKey;
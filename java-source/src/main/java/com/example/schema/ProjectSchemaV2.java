@@ -0,0 +1,131 @@
+package com.example.schema;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Second version of the Project schema. The delivery teams move from an unindexed element collection to a named
+ * collection table with a row per team, joined to its project by state ref and indexed by team, so that the projects
+ * of a delivery team can be found without scanning. The columns the flows and APIs filter on are indexed too.
+ * Parties are stored as the key hashes of ColumnUtil.keyHash; query them through PartyCriteria.
+ *
+ * ProjectState writes both versions while readers move over from V1.
+ */
+public class ProjectSchemaV2 extends MappedSchema {
+    public ProjectSchemaV2(){
+        super(ProjectSchema.class, 2, ImmutableList.of(PersistentProject.class));
+    }
+
+    @Entity
+    @Table(name = "ProjectV2", indexes = {
+            @Index(name = "project_v2_code_idx", columnList = "projectCode"),
+            @Index(name = "project_v2_platform_lead_idx", columnList = "platformLead"),
+            @Index(name = "project_v2_demand_idx", columnList = "demandId"),
+            @Index(name = "project_v2_linear_id_idx", columnList = "linearId")
+    })
+    public static class PersistentProject extends PersistentState {
+        @Column(name = "projectCode") private final String projectCode;
+        @Column(name = "allocationKey") private final String allocationKey;
+        @Column(name = "description") private final String description;
+        @Column(name = "budget") private final int budget;
+        @Column(name = "startDate") private final LocalDateTime startDate;
+        @Column(name = "endDate") private final LocalDateTime endDate;
+        @Column(name = "sponsor") private final long sponsor;
+        @Column(name = "platformLead") private final long platformLead;
+        @Column(name = "cio") private final long cio;
+        @Column(name = "coo") private final long coo;
+        @Column(name = "deliveryTeam") @ElementCollection
+        @CollectionTable(name = "ProjectV2DeliveryTeam", joinColumns = {
+                @JoinColumn(name = "transaction_id", referencedColumnName = "transaction_id"),
+                @JoinColumn(name = "output_index", referencedColumnName = "output_index")
+        }, indexes = {
+                @Index(name = "project_v2_delivery_team_idx", columnList = "deliveryTeam")
+        })
+        private final List<Long> deliveryTeams;
+        @Column(name = "demandId") private final String demandId;
+        @Column(name = "linearId") private final UUID linearId;
+
+        public PersistentProject(String projectCode, String allocationKey, String description, int budget,
+                                 LocalDateTime startDate, LocalDateTime endDate, long sponsor, long platformLead,
+                                 long cio, long coo, List<Long> deliveryTeams, String demandId,
+                                 UUID linearId) {
+            this.projectCode = projectCode;
+            this.allocationKey = allocationKey;
+            this.description = description;
+            this.budget = budget;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.sponsor = sponsor;
+            this.platformLead = platformLead;
+            this.cio = cio;
+            this.coo = coo;
+            this.deliveryTeams = deliveryTeams;
+            this.demandId = demandId;
+            this.linearId = linearId;
+        }
+
+        public String getProjectCode() {
+            return projectCode;
+        }
+
+        public String getAllocationKey() {
+            return allocationKey;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public int getBudget() {
+            return budget;
+        }
+
+        public LocalDateTime getStartDate() {
+            return startDate;
+        }
+
+        public LocalDateTime getEndDate() {
+            return endDate;
+        }
+
+        public long getSponsor() {
+            return sponsor;
+        }
+
+        public long getPlatformLead() {
+            return platformLead;
+        }
+
+        public long getCio() {
+            return cio;
+        }
+
+        public long getCoo() {
+            return coo;
+        }
+
+        public List<Long> getDeliveryTeams() {
+            return deliveryTeams;
+        }
+
+        public UUID getLinearId() {
+            return linearId;
+        }
+
+        public String getDemandId() {
+            return demandId;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.service;
+
+import com.example.flow.ArchiveFlow;
+import com.example.schema.AllocationSchemaV1;
+import com.example.schema.DemandSchemaV1;
+import com.example.schema.ProjectSchemaV1;
+import com.example.util.ColumnUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the rows of consumed project, allocation and demand versions out of the mapped schema tables and into
+ * compact archive tables, so that the tables the live queries join against only hold recent history.
+ *
+ * Each archived version becomes one row of its table's _archive table, keyed by state ref and holding the linear id,
+ * the recorded and consumed times and the state's columns as JSON, element collections included. The state's rows
+ * in later schema versions, such as ProjectV2, are dropped with it. The vault's own state and transaction tables
+ * are left alone; only our mapped schema rows move, so custom queries on consumed states no longer see archived
+ * versions but history() still does.
+ *
+ * Versions consumed more than archive.olderThanDays (default 90) days ago are archived every archive.intervalHours
+ * (default 24) hours, both read from system properties; an interval of 0 turns the job off. Each run moves at most
+ * BATCH_SIZE versions per table, so a backlog is worked off over several runs rather than in one large transaction.
+ */
+@CordaService
+public class ArchiveService extends SingletonSerializeAsToken {
+    public static final String AGE_PROPERTY = "archive.olderThanDays";
+    public static final String INTERVAL_PROPERTY = "archive.intervalHours";
+    public static final int DEFAULT_AGE_DAYS = 90;
+    public static final int DEFAULT_INTERVAL_HOURS = 24;
+    public static final int BATCH_SIZE = 1000;
+
+    public static final String LIVE_TIER = "live";
+    public static final String ARCHIVE_TIER = "archive";
+
+    private static final String VAULT_STATES = "vault_states";
+    private static final String TRANSACTION_ID = "transaction_id";
+    private static final String OUTPUT_INDEX = "output_index";
+    private static final String LINEAR_ID = "linearId";
+
+    static private final Logger logger = LoggerFactory.getLogger(ArchiveService.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @CordaSerializable
+    public enum StateTable {
+        PROJECT("Project", ProjectSchemaV1.PersistentProject.class, "ProjectV2"),
+        ALLOCATION("Allocation", AllocationSchemaV1.PersistentAllocation.class),
+        DEMAND("Demand", DemandSchemaV1.PersistentDemand.class);
+
+        private final String table;
+        private final Class<?> entity;
+        //later schema versions of the same state, whose rows are dropped along with the archived one
+        private final List<String> otherVersions;
+
+        StateTable(String table, Class<?> entity, String... otherVersions) {
+            this.table = table;
+            this.entity = entity;
+            this.otherVersions = Arrays.asList(otherVersions);
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public String getArchiveTable() {
+            return table + "_archive";
+        }
+    }
+
+    private final AppServiceHub serviceHub;
+
+    public ArchiveService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+
+        // Services are installed inside the node's startup transaction, so the archive tables are created there
+        // rather than by DDL inside a flow's transaction, which H2 would commit early.
+        final Connection connection = serviceHub.jdbcSession();
+        try {
+            for (StateTable table : StateTable.values()) {
+                createArchiveTableIfMissing(connection, table);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the archive tables", e);
+        }
+
+        final int ageDays = Integer.getInteger(AGE_PROPERTY, DEFAULT_AGE_DAYS);
+        final int intervalHours = Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL_HOURS);
+        if (intervalHours > 0) {
+            final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "archive-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+            //the database can only be reached from within a flow, so the job starts one
+            timer.scheduleWithFixedDelay(() -> {
+                try {
+                    serviceHub.startFlow(new ArchiveFlow(ageDays));
+                } catch (RuntimeException e) {
+                    logger.error("Could not start archiving", e);
+                }
+            }, intervalHours, intervalHours, TimeUnit.HOURS);
+        }
+    }
+
+    /**
+     * Archives up to BATCH_SIZE versions per table consumed longer than olderThan ago, and returns how many were
+     * moved per table. Must be called from within a flow.
+     */
+    public Map<String, Integer> archive(Duration olderThan) {
+        final Timestamp cutoff = Timestamp.from(Instant.now().minus(olderThan));
+        final Connection connection = serviceHub.jdbcSession();
+        final Map<String, Integer> archived = new LinkedHashMap<>();
+        try {
+            for (StateTable table : StateTable.values()) {
+                archived.put(table.getTable(), archive(connection, table, cutoff));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not archive consumed states", e);
+        }
+        return archived;
+    }
+
+    /**
+     * Returns every version of the state with the linear id from both the live and the archive tier, oldest first.
+     * Must be called from within a flow.
+     */
+    public List<Map<String, Object>> history(StateTable table, UUID linearId) {
+        final Connection connection = serviceHub.jdbcSession();
+        final List<Map<String, Object>> versions = new ArrayList<>();
+        try {
+            final List<ChildTable> children = childTables(connection, table.getTable());
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT t.*, v.recorded_timestamp, v.consumed_timestamp FROM " + table.getTable() + " t"
+                            + " JOIN " + VAULT_STATES + " v ON t." + TRANSACTION_ID + " = v." + TRANSACTION_ID
+                            + " AND t." + OUTPUT_INDEX + " = v." + OUTPUT_INDEX
+                            + " WHERE t." + LINEAR_ID + " = ?")) {
+                statement.setObject(1, ColumnUtil.toColumn(linearId));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final Map<String, Object> row = row(resultSet);
+                        final Map<String, Object> version = header(row, LIVE_TIER);
+                        version.putAll(fields(connection, table, children, row));
+                        versions.add(version);
+                    }
+                }
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT * FROM " + table.getArchiveTable() + " WHERE linear_id = ?")) {
+                statement.setString(1, linearId.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final Map<String, Object> row = row(resultSet);
+                        final Map<String, Object> version = header(row, ARCHIVE_TIER);
+                        version.putAll(mapper.readValue(resultSet.getString("payload"), LinkedHashMap.class));
+                        versions.add(version);
+                    }
+                }
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not read the history of " + linearId, e);
+        }
+
+        //compare the instants themselves; their strings vary in the number of fraction digits
+        versions.sort(Comparator.comparing(version -> (version.get("recordedAt") == null) ? null : Instant.parse((String) version.get("recordedAt")),
+                Comparator.nullsLast(Comparator.<Instant>naturalOrder())));
+        return versions;
+    }
+
+    private int archive(Connection connection, StateTable table, Timestamp cutoff) throws SQLException {
+        final List<ChildTable> children = childTables(connection, table.getTable());
+        final Map<String, List<ChildTable>> otherVersions = new LinkedHashMap<>();
+        for (String otherVersion : table.otherVersions) {
+            otherVersions.put(otherVersion, childTables(connection, otherVersion));
+        }
+        int archived = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT t.*, v.recorded_timestamp, v.consumed_timestamp FROM " + table.getTable() + " t"
+                        + " JOIN " + VAULT_STATES + " v ON t." + TRANSACTION_ID + " = v." + TRANSACTION_ID
+                        + " AND t." + OUTPUT_INDEX + " = v." + OUTPUT_INDEX
+                        + " WHERE v.state_status = ? AND v.consumed_timestamp < ?")) {
+            select.setInt(1, Vault.StateStatus.CONSUMED.ordinal());
+            select.setTimestamp(2, cutoff);
+            select.setMaxRows(BATCH_SIZE);
+
+            final List<Map<String, Object>> rows = new ArrayList<>();
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(row(resultSet));
+                }
+            }
+
+            for (Map<String, Object> row : rows) {
+                final String payload;
+                try {
+                    payload = mapper.writeValueAsString(fields(connection, table, children, row));
+                } catch (JsonProcessingException e) {
+                    throw new SQLException("Could not encode archived state", e);
+                }
+                insertArchiveRow(connection, table, row, payload);
+                for (ChildTable child : children) {
+                    deleteByStateRef(connection, child.table, child.transactionIdColumn, child.outputIndexColumn, row);
+                }
+                deleteByStateRef(connection, table.getTable(), TRANSACTION_ID, OUTPUT_INDEX, row);
+                for (Map.Entry<String, List<ChildTable>> otherVersion : otherVersions.entrySet()) {
+                    for (ChildTable child : otherVersion.getValue()) {
+                        deleteByStateRef(connection, child.table, child.transactionIdColumn, child.outputIndexColumn, row);
+                    }
+                    deleteByStateRef(connection, otherVersion.getKey(), TRANSACTION_ID, OUTPUT_INDEX, row);
+                }
+                archived++;
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived {} consumed rows of {}", archived, table.getTable());
+        }
+        return archived;
+    }
+
+    /**
+     * Returns the state's columns under their mapped names, with each element collection read from its child table.
+     */
+    private static Map<String, Object> fields(Connection connection, StateTable table, List<ChildTable> children,
+                                              Map<String, Object> row) throws SQLException {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        for (Field field : table.entity.getDeclaredFields()) {
+            final Column column = field.getAnnotation(Column.class);
+            if (column == null) {
+                continue;
+            }
+            if (field.getType() == UUID.class) {
+                fields.put(column.name(), (row.get(column.name()) == null) ? null : ColumnUtil.uuidOf(row.get(column.name())).toString());
+                continue;
+            }
+            if (field.getAnnotation(ElementCollection.class) == null) {
+                fields.put(column.name(), plain(row.get(column.name())));
+                continue;
+            }
+            final List<Object> values = new ArrayList<>();
+            for (ChildTable child : children) {
+                if (child.table.toLowerCase().endsWith(field.getName().toLowerCase())) {
+                    values.addAll(child.values(connection, row));
+                }
+            }
+            fields.put(column.name(), values);
+        }
+        return fields;
+    }
+
+    private static Map<String, Object> header(Map<String, Object> row, String tier) {
+        final Map<String, Object> header = new LinkedHashMap<>();
+        header.put("ref", String.format("%s(%s)", row.get(TRANSACTION_ID), row.get(OUTPUT_INDEX)));
+        header.put("tier", tier);
+        header.put("recordedAt", plain(row.get(ARCHIVE_TIER.equals(tier) ? "recorded_at" : "recorded_timestamp")));
+        header.put("consumedAt", plain(row.get(ARCHIVE_TIER.equals(tier) ? "consumed_at" : "consumed_timestamp")));
+        return header;
+    }
+
+    /**
+     * Reads the current row into a map whose keys ignore case, as databases differ in how they report column names.
+     */
+    private static Map<String, Object> row(ResultSet resultSet) throws SQLException {
+        final ResultSetMetaData metaData = resultSet.getMetaData();
+        final Map<String, Object> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            row.put(metaData.getColumnLabel(i), resultSet.getObject(i));
+        }
+        return row;
+    }
+
+    private static Object plain(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toInstant().toString();
+        }
+        return value.toString();
+    }
+
+    private static void createArchiveTableIfMissing(Connection connection, StateTable table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table.getArchiveTable()
+                    + " (transaction_id VARCHAR(64) NOT NULL, output_index INT NOT NULL, linear_id VARCHAR(36),"
+                    + " recorded_at TIMESTAMP, consumed_at TIMESTAMP, payload CLOB NOT NULL,"
+                    + " PRIMARY KEY (transaction_id, output_index))");
+            statement.execute("CREATE INDEX IF NOT EXISTS " + table.getArchiveTable() + "_linear_id_idx ON "
+                    + table.getArchiveTable() + " (linear_id)");
+        }
+    }
+
+    private static void insertArchiveRow(Connection connection, StateTable table, Map<String, Object> row, String payload) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table.getArchiveTable()
+                + " (transaction_id, output_index, linear_id, recorded_at, consumed_at, payload) VALUES (?, ?, ?, ?, ?, ?)")) {
+            statement.setObject(1, row.get(TRANSACTION_ID));
+            statement.setObject(2, row.get(OUTPUT_INDEX));
+            statement.setString(3, (row.get(LINEAR_ID) == null) ? null : ColumnUtil.uuidOf(row.get(LINEAR_ID)).toString());
+            statement.setObject(4, row.get("recorded_timestamp"));
+            statement.setObject(5, row.get("consumed_timestamp"));
+            statement.setString(6, payload);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void deleteByStateRef(Connection connection, String table, String transactionIdColumn,
+                                         String outputIndexColumn, Map<String, Object> row) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table
+                + " WHERE " + transactionIdColumn + " = ? AND " + outputIndexColumn + " = ?")) {
+            statement.setObject(1, row.get(TRANSACTION_ID));
+            statement.setObject(2, row.get(OUTPUT_INDEX));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Finds the element collection tables of a state table through their foreign keys to it, so that nothing
+     * depends on the names Hibernate picked for them.
+     */
+    private static List<ChildTable> childTables(Connection connection, String table) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Map<String, ChildTable> children = new LinkedHashMap<>();
+        try (ResultSet keys = metaData.getExportedKeys(null, null, identifier(metaData, table))) {
+            while (keys.next()) {
+                final ChildTable child = children.computeIfAbsent(keys.getString("FKTABLE_NAME"), ChildTable::new);
+                final String referenced = keys.getString("PKCOLUMN_NAME");
+                if (TRANSACTION_ID.equalsIgnoreCase(referenced)) {
+                    child.transactionIdColumn = keys.getString("FKCOLUMN_NAME");
+                } else if (OUTPUT_INDEX.equalsIgnoreCase(referenced)) {
+                    child.outputIndexColumn = keys.getString("FKCOLUMN_NAME");
+                }
+            }
+        }
+        for (ChildTable child : children.values()) {
+            try (ResultSet columns = metaData.getColumns(null, null, child.table, null)) {
+                while (columns.next()) {
+                    final String column = columns.getString("COLUMN_NAME");
+                    if (!column.equalsIgnoreCase(child.transactionIdColumn) && !column.equalsIgnoreCase(child.outputIndexColumn)) {
+                        child.valueColumn = column;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(children.values());
+    }
+
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        if (metaData.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase();
+        }
+        return metaData.storesLowerCaseIdentifiers() ? name.toLowerCase() : name;
+    }
+
+    private static class ChildTable {
+        private final String table;
+        private String transactionIdColumn;
+        private String outputIndexColumn;
+        private String valueColumn;
+
+        private ChildTable(String table) {
+            this.table = table;
+        }
+
+        private List<Object> values(Connection connection, Map<String, Object> row) throws SQLException {
+            final List<Object> values = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT " + valueColumn + " FROM " + table
+                    + " WHERE " + transactionIdColumn + " = ? AND " + outputIndexColumn + " = ?")) {
+                statement.setObject(1, row.get(TRANSACTION_ID));
+                statement.setObject(2, row.get(OUTPUT_INDEX));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        values.add(plain(resultSet.getObject(1)));
+                    }
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.service;
+
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.utilities.ProgressTracker;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.functions.Action1;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long flows spend in each of their progress tracker steps, per flow class, so that slow flows can be
+ * pinned on verification, signature collection or notarisation.
+ *
+ * Flows extending TimedFlowLogic hand their progress tracker to track() before their first step; the time from one
+ * step to the next is then recorded against the earlier step, and the time from the first step to DONE against
+ * TOTAL_STEP. Only flows that reach DONE record their last step and total. Values are in microseconds.
+ *
+ * Each flow class and step is published as a StepLatencyMXBean named
+ * com.example:type=FlowStepLatency,flow=...,step=..., and snapshot() gives the same figures for the REST API.
+ */
+@CordaService
+public class FlowMetricsService extends SingletonSerializeAsToken {
+    public static final String TOTAL_STEP = "Total";
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    static private final Logger logger = LoggerFactory.getLogger(FlowMetricsService.class);
+
+    public interface StepLatencyMXBean {
+        long getCount();
+        double getMeanMicros();
+        long getP50Micros();
+        long getP90Micros();
+        long getP99Micros();
+        long getMaxMicros();
+    }
+
+    public static class StepLatency implements StepLatencyMXBean {
+        private final Histogram histogram = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+        void record(long micros) {
+            histogram.recordValue(Math.max(0, micros));
+        }
+
+        @Override public long getCount() { return histogram.getTotalCount(); }
+        @Override public double getMeanMicros() { return histogram.getMean(); }
+        @Override public long getP50Micros() { return histogram.getValueAtPercentile(50); }
+        @Override public long getP90Micros() { return histogram.getValueAtPercentile(90); }
+        @Override public long getP99Micros() { return histogram.getValueAtPercentile(99); }
+        @Override public long getMaxMicros() { return histogram.getMaxValue(); }
+    }
+
+    //flow class name -> step label -> latency, both in the order first seen
+    private final ConcurrentMap<String, Map<String, StepLatency>> latencies = new ConcurrentHashMap<>();
+
+    public FlowMetricsService(AppServiceHub serviceHub) {
+    }
+
+    /**
+     * Starts timing the steps of the given tracker, which must not have left its UNSTARTED step yet. Only the
+     * tracker's own steps are timed; those of child trackers count towards the parent step.
+     */
+    public void track(Class<?> flowClass, ProgressTracker progressTracker) {
+        progressTracker.getChanges().subscribe(new StepClock(flowClass.getName(), progressTracker),
+                error -> logger.warn("Stopped timing steps of {}", flowClass.getName(), error));
+    }
+
+    /**
+     * Returns one row per flow class and step with the count, mean, p50, p90, p99 and max latency in microseconds.
+     */
+    public List<Map<String, Object>> snapshot() {
+        final List<Map<String, Object>> rows = new ArrayList<>();
+        latencies.forEach((flow, steps) -> {
+            synchronized (steps) {
+                steps.forEach((step, latency) -> {
+                    final Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("flow", flow);
+                    row.put("step", step);
+                    row.put("count", latency.getCount());
+                    row.put("meanMicros", latency.getMeanMicros());
+                    row.put("p50Micros", latency.getP50Micros());
+                    row.put("p90Micros", latency.getP90Micros());
+                    row.put("p99Micros", latency.getP99Micros());
+                    row.put("maxMicros", latency.getMaxMicros());
+                    rows.add(row);
+                });
+            }
+        });
+        return rows;
+    }
+
+    private void record(String flow, String step, long nanos) {
+        final Map<String, StepLatency> steps = latencies.computeIfAbsent(flow, ignored -> new LinkedHashMap<>());
+        StepLatency latency;
+        synchronized (steps) {
+            latency = steps.get(step);
+            if (latency == null) {
+                latency = new StepLatency();
+                steps.put(step, latency);
+                register(flow, step, latency);
+            }
+        }
+        latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private static void register(String flow, String step, StepLatency latency) {
+        try {
+            final ObjectName name = new ObjectName(String.format("com.example:type=FlowStepLatency,flow=%s,step=%s",
+                    ObjectName.quote(flow), ObjectName.quote(step)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(latency, name);
+        } catch (JMException e) {
+            logger.warn("Could not publish step latency of {} over JMX", flow, e);
+        }
+    }
+
+    /**
+     * Follows one tracker. Changes are delivered on the flow's own thread, one at a time.
+     */
+    private class StepClock implements Action1<ProgressTracker.Change> {
+        private final String flow;
+        private final ProgressTracker progressTracker;
+        private long flowStarted;
+        private ProgressTracker.Step step;
+        private long stepStarted;
+
+        private StepClock(String flow, ProgressTracker progressTracker) {
+            this.flow = flow;
+            this.progressTracker = progressTracker;
+        }
+
+        @Override
+        public void call(ProgressTracker.Change change) {
+            if (!(change instanceof ProgressTracker.Change.Position) || change.getProgressTracker() != progressTracker) {
+                return;
+            }
+            final ProgressTracker.Step newStep = ((ProgressTracker.Change.Position) change).getNewStep();
+            final long now = System.nanoTime();
+            if (step == null) {
+                if (newStep == ProgressTracker.DONE.INSTANCE || newStep == ProgressTracker.UNSTARTED.INSTANCE) {
+                    return;
+                }
+                flowStarted = now;
+            } else {
+                record(flow, step.getLabel(), now - stepStarted);
+            }
+
+            if (newStep == ProgressTracker.DONE.INSTANCE) {
+                record(flow, TOTAL_STEP, now - flowStarted);
+                step = null;
+            } else {
+                step = newStep;
+                stepStarted = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.service;
+
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets a SchedulableState tell which node it is being scheduled on. nextScheduledActivity is given only the state's
+ * ref, so the states check the legal identities registered here when the node starts, and a state closed by
+ * another party schedules nothing on this node.
+ *
+ * Nodes that share a JVM, as under MockNetwork, register into the same set, and until a node has registered the set
+ * is empty; in both cases every node schedules the activity and the scheduled flow's own check decides.
+ */
+@CordaService
+public class LocalIdentityService extends SingletonSerializeAsToken {
+    private static final Set<Party> localIdentities = ConcurrentHashMap.newKeySet();
+
+    public LocalIdentityService(AppServiceHub serviceHub) {
+        localIdentities.addAll(serviceHub.getMyInfo().getLegalIdentities());
+    }
+
+    /**
+     * Returns false only when the party is known not to be an identity of this node.
+     */
+    public static boolean mayBeLocal(Party party) {
+        return localIdentities.isEmpty() || localIdentities.contains(party);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.service;
+
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Picks the notary for a new state lineage, so that notarisation is spread over every notary on the network instead
+ * of all going to the first one.
+ *
+ * Only flows that start a lineage, such as demand creation, ask this service. Every later flow reuses the notary of
+ * the state it consumes, so a demand, the project it becomes and that project's allocations stay with one notary
+ * for their whole life, and a change in the set of notaries only affects lineages started afterwards.
+ *
+ * The policy is read from the notary.selection.policy system property of the node: "hash" (the default) maps the
+ * linear id onto the notaries ordered by name, "first" keeps the old behaviour of using the first notary.
+ */
+@CordaService
+public class NotarySelectionService extends SingletonSerializeAsToken {
+    public static final String POLICY_PROPERTY = "notary.selection.policy";
+
+    public enum Policy {
+        HASH {
+            @Override
+            Party select(List<Party> notaries, UniqueIdentifier linearId) {
+                return notaries.get(Math.floorMod(linearId.getId().hashCode(), notaries.size()));
+            }
+        },
+        FIRST {
+            @Override
+            Party select(List<Party> notaries, UniqueIdentifier linearId) {
+                return notaries.get(0);
+            }
+        };
+
+        abstract Party select(List<Party> notaries, UniqueIdentifier linearId);
+    }
+
+    private final AppServiceHub serviceHub;
+    private final Policy policy;
+
+    public NotarySelectionService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        this.policy = Policy.valueOf(System.getProperty(POLICY_PROPERTY, Policy.HASH.name()).toUpperCase());
+    }
+
+    /**
+     * Returns the notary the lineage identified by linearId is assigned to.
+     */
+    public Party notaryFor(UniqueIdentifier linearId) {
+        final List<Party> notaries = new ArrayList<>(serviceHub.getNetworkMapCache().getNotaryIdentities());
+        if (notaries.isEmpty()) {
+            throw new IllegalStateException("No notary is available on the network.");
+        }
+        //the network map gives no ordering guarantee, so sort to map the same id to the same notary on every node
+        notaries.sort(Comparator.comparing(notary -> notary.getName().toString()));
+        return policy.select(notaries, linearId);
+    }
+}
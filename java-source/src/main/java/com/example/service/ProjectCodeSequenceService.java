@@ -0,0 +1,121 @@
+package com.example.service;
+
+import com.example.state.ProjectState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hands out the running number behind each platform lead's project codes and allocation keys.
+ *
+ * The counter is a row per platform lead in the node's database, incremented in place inside the calling flow's
+ * transaction. The row stays locked until that transaction commits, so concurrent flows never get the same number.
+ * Numbers are not reused: a flow that fails after taking one leaves a gap.
+ *
+ * Only a platform lead's own node issues its project codes, so the one row a node needs is its own. The table and
+ * that row are created when the node starts, outside any flow, seeded from the project codes already in the vault
+ * so that existing nodes carry on from where the old vault scan left off. Flows then only ever update the row.
+ */
+@CordaService
+public class ProjectCodeSequenceService extends SingletonSerializeAsToken {
+    private static final String TABLE = "project_code_sequence";
+    private static final int PAGE_SIZE = 200;
+
+    private final AppServiceHub serviceHub;
+
+    public ProjectCodeSequenceService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        // Services are installed inside the node's startup transaction, so this DDL commits nothing of a flow's.
+        final Party me = serviceHub.getMyInfo().getLegalIdentities().get(0);
+        final Connection connection = serviceHub.jdbcSession();
+        try {
+            createTableIfMissing(connection);
+            if (current(connection, me.getName().toString()) == null) {
+                insert(connection, me.getName().toString(), countExistingProjectCodes(me));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the project code sequence", e);
+        }
+    }
+
+    /**
+     * Returns the next number for the platform lead, which must be this node's own identity. Must be called from
+     * within a flow.
+     */
+    public int next(Party platformLead) {
+        final String key = platformLead.getName().toString();
+        final Connection connection = serviceHub.jdbcSession();
+        try {
+            if (increment(connection, key) == 0) {
+                throw new IllegalStateException("Project codes for " + key + " are not issued by this node.");
+            }
+            return current(connection, key);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not generate project code for " + key, e);
+        }
+    }
+
+    private void createTableIfMissing(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                    + " (platform_lead VARCHAR(255) NOT NULL PRIMARY KEY, last_value INT NOT NULL)");
+        }
+    }
+
+    private int increment(Connection connection, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + TABLE + " SET last_value = last_value + 1 WHERE platform_lead = ?")) {
+            statement.setString(1, key);
+            return statement.executeUpdate();
+        }
+    }
+
+    private void insert(Connection connection, String key, int value) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + TABLE + " (platform_lead, last_value) VALUES (?, ?)")) {
+            statement.setString(1, key);
+            statement.setInt(2, value);
+            statement.executeUpdate();
+        }
+    }
+
+    private Integer current(Connection connection, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT last_value FROM " + TABLE + " WHERE platform_lead = ?")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : null;
+            }
+        }
+    }
+
+    private int countExistingProjectCodes(Party platformLead) {
+        QueryCriteria queryCriteria = new QueryCriteria.LinearStateQueryCriteria(
+                ImmutableList.of(platformLead),
+                null,
+                Vault.StateStatus.ALL,
+                null);
+        final Set<String> projectCodes = new HashSet<>();
+        for (int pageNumber = 1; ; pageNumber++) {
+            Vault.Page<ProjectState> page = serviceHub.getVaultService().queryBy(ProjectState.class, queryCriteria,
+                    new PageSpecification(pageNumber, PAGE_SIZE));
+            page.getStates().forEach(stateAndRef -> projectCodes.add(stateAndRef.getState().getData().getProjectCode()));
+            if ((long) pageNumber * PAGE_SIZE >= page.getTotalStatesAvailable()) {
+                return projectCodes.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.service;
+
+import com.example.state.ProjectState;
+import com.example.util.ColumnUtil;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.util.PagingUtil.MAX_PAGE_SIZE;
+
+/**
+ * Project lookups that vault query criteria cannot express, answered from the ProjectSchemaV2 tables.
+ *
+ * Projects recorded before ProjectSchemaV2 was introduced are not found until SchemaBackfillService has written
+ * their V2 rows.
+ */
+@CordaService
+public class ProjectQueryService extends SingletonSerializeAsToken {
+    private final AppServiceHub serviceHub;
+
+    public ProjectQueryService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+    }
+
+    /**
+     * Returns the unconsumed projects the delivery team works on, found through project_v2_delivery_team_idx.
+     * Must be called from within a flow.
+     */
+    public List<StateAndRef<ProjectState>> projectsOfDeliveryTeam(Party deliveryTeam) {
+        final List<StateRef> refs = new ArrayList<>();
+        final Connection connection = serviceHub.jdbcSession();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT t.transaction_id, t.output_index FROM ProjectV2DeliveryTeam t"
+                        + " JOIN vault_states v ON t.transaction_id = v.transaction_id AND t.output_index = v.output_index"
+                        + " WHERE t.deliveryTeam = ? AND v.state_status = ?")) {
+            statement.setLong(1, ColumnUtil.keyHash(deliveryTeam));
+            statement.setInt(2, Vault.StateStatus.UNCONSUMED.ordinal());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    refs.add(new StateRef(SecureHash.parse(resultSet.getString(1)), resultSet.getInt(2)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not look up the projects of " + deliveryTeam, e);
+        }
+        if (refs.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        //a vault query without a page specification fails once there are more than 200 results, so page through them
+        final QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, null, refs);
+        final List<StateAndRef<ProjectState>> projects = new ArrayList<>(refs.size());
+        for (int pageNumber = 1; projects.size() < refs.size(); pageNumber++) {
+            final List<StateAndRef<ProjectState>> page = serviceHub.getVaultService()
+                    .queryBy(ProjectState.class, criteria, new PageSpecification(pageNumber, MAX_PAGE_SIZE)).getStates();
+            projects.addAll(page);
+            if (page.size() < MAX_PAGE_SIZE) {
+                break;
+            }
+        }
+        return projects;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.service;
+
+import com.example.util.RoleDirectory;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the parties playing each role for flows, from the names in the RoleDirectory.
+ *
+ * Resolved parties are cached per role, so a lookup does not go through the identity service on every flow. The
+ * cache is dropped whenever the network map changes, and a role is only cached once all of its names resolve, so
+ * parties that join the network later are picked up.
+ */
+@CordaService
+public class RoleDirectoryService extends SingletonSerializeAsToken {
+    private final AppServiceHub serviceHub;
+    private final RoleDirectory directory;
+    private final Map<RoleDirectory.Role, List<Party>> parties = new ConcurrentHashMap<>();
+
+    public RoleDirectoryService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+        this.directory = RoleDirectory.load();
+        serviceHub.getNetworkMapCache().getChanged().subscribe(change -> parties.clear());
+    }
+
+    /**
+     * Returns the known parties with the role.
+     */
+    public List<Party> partiesOf(RoleDirectory.Role role) {
+        final List<Party> cached = parties.get(role);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<Party> resolved = new ArrayList<>();
+        boolean complete = true;
+        for (CordaX500Name name : directory.namesOf(role)) {
+            final Party party = serviceHub.getIdentityService().wellKnownPartyFromX500Name(name);
+            if (party == null) {
+                complete = false;
+            } else {
+                resolved.add(party);
+            }
+        }
+        final List<Party> result = ImmutableList.copyOf(resolved);
+        if (complete) {
+            parties.put(role, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the one party with the role, for roles such as CIO and COO that a network has a single holder of.
+     */
+    public Party partyOf(RoleDirectory.Role role) {
+        final List<Party> holders = partiesOf(role);
+        if (holders.size() != 1) {
+            throw new IllegalStateException(String.format("Expected one known %s party but found %d.", role, holders.size()));
+        }
+        return holders.get(0);
+    }
+
+    public boolean hasRole(Party party, RoleDirectory.Role role) {
+        return directory.hasRole(party.getName(), role);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.service;
+
+import com.example.flow.SchemaBackfillFlow;
+import com.example.schema.ProjectSchemaV2;
+import com.example.util.ColumnUtil;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Table;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the ProjectSchemaV2 rows of projects recorded before the V2 schema existed. New states get their V2 rows
+ * from the vault as they are recorded; this fills in the rest so that queries can move to V2.
+ *
+ * A state is backfilled when it still has a V1 row but no V2 row, so versions that ArchiveService has already
+ * archived are left alone. The V2 row is built by the state's own generateMappedObject, so it is exactly what the
+ * vault would have written, and is inserted over JDBC in the calling flow's transaction.
+ *
+ * The service starts SchemaBackfillFlow schema.backfill.delaySeconds (default 60) seconds after the node starts, and
+ * runs it again straight away after every batch until a run finds nothing left; a delay of 0 turns it off. Each run
+ * backfills at most BATCH_SIZE states per schema, so no single transaction grows with the size of the vault.
+ */
+@CordaService
+public class SchemaBackfillService extends SingletonSerializeAsToken {
+    public static final String DELAY_PROPERTY = "schema.backfill.delaySeconds";
+    public static final int DEFAULT_DELAY_SECONDS = 60;
+    public static final int BATCH_SIZE = 1000;
+
+    private static final String TRANSACTION_ID = "transaction_id";
+    private static final String OUTPUT_INDEX = "output_index";
+
+    static private final Logger logger = LoggerFactory.getLogger(SchemaBackfillService.class);
+
+    /**
+     * A V1 table and the schema version whose rows are backfilled from it.
+     */
+    private enum Backfill {
+        PROJECT("Project", new ProjectSchemaV2());
+
+        private final String sourceTable;
+        private final MappedSchema schema;
+        private final String table;
+
+        Backfill(String sourceTable, MappedSchema schema) {
+            this.sourceTable = sourceTable;
+            this.schema = schema;
+            this.table = schema.getMappedTypes().iterator().next().getAnnotation(Table.class).name();
+        }
+    }
+
+    private final AppServiceHub serviceHub;
+
+    public SchemaBackfillService(AppServiceHub serviceHub) {
+        this.serviceHub = serviceHub;
+
+        final int delaySeconds = Integer.getInteger(DELAY_PROPERTY, DEFAULT_DELAY_SECONDS);
+        if (delaySeconds > 0) {
+            final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "schema-backfill");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Map<String, Integer> backfilled;
+                        do {
+                            backfilled = serviceHub.startFlow(new SchemaBackfillFlow()).getReturnValue().get();
+                        } while (backfilled.values().stream().anyMatch(count -> count > 0));
+                        timer.shutdown();
+                    } catch (Exception e) {
+                        logger.error("Could not backfill the V2 schemas, retrying in {} seconds", delaySeconds, e);
+                        timer.schedule(this, delaySeconds, TimeUnit.SECONDS);
+                    }
+                }
+            }, delaySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Backfills up to BATCH_SIZE states per schema and returns how many rows were written per V2 table. Must be
+     * called from within a flow.
+     */
+    public Map<String, Integer> backfill() {
+        final Connection connection = serviceHub.jdbcSession();
+        final Map<String, Integer> backfilled = new LinkedHashMap<>();
+        try {
+            for (Backfill backfill : Backfill.values()) {
+                int count = 0;
+                for (StateRef ref : missingRefs(connection, backfill)) {
+                    final ContractState state = serviceHub.toStateAndRef(ref).getState().getData();
+                    insert(connection, ((QueryableState) state).generateMappedObject(backfill.schema), ref);
+                    count++;
+                }
+                if (count > 0) {
+                    logger.info("Backfilled {} rows of {}", count, backfill.table);
+                }
+                backfilled.put(backfill.table, count);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not backfill the V2 schemas", e);
+        }
+        return backfilled;
+    }
+
+    private static List<StateRef> missingRefs(Connection connection, Backfill backfill) throws SQLException {
+        final List<StateRef> refs = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT s." + TRANSACTION_ID + ", s." + OUTPUT_INDEX + " FROM " + backfill.sourceTable + " s"
+                        + " LEFT JOIN " + backfill.table + " t ON s." + TRANSACTION_ID + " = t." + TRANSACTION_ID
+                        + " AND s." + OUTPUT_INDEX + " = t." + OUTPUT_INDEX
+                        + " WHERE t." + TRANSACTION_ID + " IS NULL")) {
+            statement.setMaxRows(BATCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    refs.add(new StateRef(SecureHash.parse(resultSet.getString(1)), resultSet.getInt(2)));
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Inserts the entity's row, and a row per element of each of its element collections, from its @Column fields.
+     */
+    private static void insert(Connection connection, PersistentState entity, StateRef ref) throws SQLException {
+        final List<String> columns = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        columns.add(TRANSACTION_ID);
+        values.add(ref.getTxhash().toString());
+        columns.add(OUTPUT_INDEX);
+        values.add(ref.getIndex());
+
+        final List<Field> collections = new ArrayList<>();
+        for (Field field : entity.getClass().getDeclaredFields()) {
+            final Column column = field.getAnnotation(Column.class);
+            if (column == null) {
+                continue;
+            }
+            if (field.getAnnotation(ElementCollection.class) != null) {
+                collections.add(field);
+                continue;
+            }
+            columns.add(column.name());
+            values.add(ColumnUtil.toColumn(valueOf(field, entity)));
+        }
+        insertRow(connection, entity.getClass().getAnnotation(Table.class).name(), columns, values);
+
+        for (Field field : collections) {
+            final CollectionTable collectionTable = field.getAnnotation(CollectionTable.class);
+            final List<String> elementColumns = new ArrayList<>();
+            elementColumns.add(collectionTable.joinColumns()[0].name());
+            elementColumns.add(collectionTable.joinColumns()[1].name());
+            elementColumns.add(field.getAnnotation(Column.class).name());
+
+            final Collection<?> elements = (Collection<?>) valueOf(field, entity);
+            for (Object element : (elements == null) ? Collections.emptyList() : elements) {
+                final List<Object> elementValues = new ArrayList<>();
+                elementValues.add(values.get(0));
+                elementValues.add(values.get(1));
+                elementValues.add(ColumnUtil.toColumn(element));
+                insertRow(connection, collectionTable.name(), elementColumns, elementValues);
+            }
+        }
+    }
+
+    private static void insertRow(Connection connection, String table, List<String> columns, List<Object> values) throws SQLException {
+        final String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table
+                + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")")) {
+            for (int i = 0; i < values.size(); i++) {
+                statement.setObject(i + 1, values.get(i));
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private static Object valueOf(Field field, Object entity) {
+        try {
+            field.setAccessible(true);
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not read " + field.getName() + " of " + entity.getClass().getSimpleName(), e);
+        }
+    }
+}
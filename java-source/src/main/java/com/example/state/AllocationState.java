@@ -1,23 +1,31 @@
 package com.example.state;
 
+import com.example.flow.AllocationCloseFlow;
 import com.example.schema.AllocationSchemaV1;
+import com.example.service.LocalIdentityService;
+import com.example.util.DateUtil;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.SchedulableState;
+import net.corda.core.contracts.ScheduledActivity;
+import net.corda.core.contracts.StateRef;
 import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.flows.FlowLogicRefFactory;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
 import net.corda.core.schemas.MappedSchema;
 import net.corda.core.schemas.PersistentState;
 import net.corda.core.schemas.QueryableState;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-public class AllocationState implements LinearState, QueryableState{
+public class AllocationState implements LinearState, QueryableState, SchedulableState {
     private final String projectCode;
     private final String allocationKey;
     private final String description;
@@ -83,12 +91,12 @@ public class AllocationState implements LinearState, QueryableState{
         return allocationAmount;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getStartDate() {
         return startDate;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getEndDate() {
         return endDate;
     }
@@ -125,6 +133,20 @@ public class AllocationState implements LinearState, QueryableState{
         return Arrays.asList(platformLead, deliveryTeam, coo);
     }
 
+    /**
+     * Closes the allocation once its end date has passed, so that expired allocations leave the unconsumed set.
+     */
+    @Nullable
+    @Override
+    public ScheduledActivity nextScheduledActivity(@NotNull StateRef thisStateRef, @NotNull FlowLogicRefFactory flowLogicRefFactory) {
+        //only the platform lead's node closes it, the other participants receive the transaction through finality
+        if (!LocalIdentityService.mayBeLocal(platformLead)) {
+            return null;
+        }
+        return new ScheduledActivity(flowLogicRefFactory.create(AllocationCloseFlow.Initiator.class, thisStateRef),
+                DateUtil.closeTimeOf(endDate));
+    }
+
     public AllocationState updateAllocationState(int allocationAmount, LocalDateTime startDate, LocalDateTime endDate){
         return new AllocationState(this.projectCode, this.allocationKey, this.description, this.platformLead,
                 this.deliveryTeam, this.coo, allocationAmount, startDate, endDate, this.linearId);
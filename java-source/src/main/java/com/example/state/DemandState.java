@@ -1,10 +1,17 @@
 package com.example.state;
 
+import com.example.flow.DemandCloseFlow;
 import com.example.schema.DemandSchemaV1;
+import com.example.service.LocalIdentityService;
+import com.example.util.DateUtil;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.SchedulableState;
+import net.corda.core.contracts.ScheduledActivity;
+import net.corda.core.contracts.StateRef;
 import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.flows.FlowLogicRefFactory;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
 import net.corda.core.schemas.MappedSchema;
@@ -12,6 +19,7 @@ import net.corda.core.schemas.PersistentState;
 import net.corda.core.schemas.QueryableState;
 import net.corda.core.serialization.CordaSerializable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.security.PublicKey;
 import java.time.LocalDateTime;
@@ -21,7 +29,7 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 @CordaSerializable
-public class DemandState implements LinearState, QueryableState {
+public class DemandState implements LinearState, QueryableState, SchedulableState {
     private final String description;
     private final Integer amount;
     private final LocalDateTime startDate;
@@ -62,12 +70,12 @@ public class DemandState implements LinearState, QueryableState {
         return amount;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getStartDate() {
         return startDate;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getEndDate() {
         return endDate;
     }
@@ -120,6 +128,24 @@ public class DemandState implements LinearState, QueryableState {
         return getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList());
     }
 
+    /**
+     * Closes the demand once its end date has passed. A demand gets its dates when it is approved as a project, so
+     * nothing is scheduled before then.
+     */
+    @Nullable
+    @Override
+    public ScheduledActivity nextScheduledActivity(@NotNull StateRef thisStateRef, @NotNull FlowLogicRefFactory flowLogicRefFactory) {
+        if (endDate == null) {
+            return null;
+        }
+        //only the sponsor's node closes it, the other participants receive the transaction through finality
+        if (!LocalIdentityService.mayBeLocal(sponsor)) {
+            return null;
+        }
+        return new ScheduledActivity(flowLogicRefFactory.create(DemandCloseFlow.Initiator.class, thisStateRef),
+                DateUtil.closeTimeOf(endDate));
+    }
+
     public DemandState updateState(Integer amount, LocalDateTime startDate, LocalDateTime endDate, List<Party> participentList, UniqueIdentifier linearId){
         participentList.addAll(this.getApprovalParties());
         return new DemandState(this.description, this.sponsor, this.platformLead, amount, startDate, endDate, participentList, linearId);
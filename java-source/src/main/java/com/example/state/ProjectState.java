@@ -1,6 +1,9 @@
 package com.example.state;
 
 import com.example.schema.ProjectSchemaV1;
+import com.example.schema.ProjectSchemaV2;
+import com.example.util.ColumnUtil;
+import com.example.util.DateUtil;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.google.common.collect.ImmutableList;
 import net.corda.core.contracts.LinearState;
@@ -81,12 +84,12 @@ public class ProjectState implements LinearState, QueryableState {
         return budget;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getStartDate() {
         return startDate;
     }
 
-    @JsonFormat(pattern = "dd/MM/yyyy")
+    @JsonFormat(pattern = DateUtil.DATE_PATTERN)
     public LocalDateTime getEndDate() {
         return endDate;
     }
@@ -121,10 +124,13 @@ public class ProjectState implements LinearState, QueryableState {
         return linearId;
     }
 
+    /**
+     * Both versions are written while readers move from V1 to V2; V1 can be dropped once nothing queries it.
+     */
     @NotNull
     @Override
     public Iterable<MappedSchema> supportedSchemas() {
-        return ImmutableList.of(new ProjectSchemaV1());
+        return ImmutableList.of(new ProjectSchemaV1(), new ProjectSchemaV2());
     }
 
     @NotNull
@@ -136,6 +142,13 @@ public class ProjectState implements LinearState, QueryableState {
                     .map(Object::toString).collect(Collectors.toList());
 
             return new ProjectSchemaV1.PersistentProject(this.projectCode, this.allocationKey, this.description, this.budget, this.startDate, this.endDate, this.sponsor.toString(), this.platformLead.toString(), this.cio.toString(), this.coo.toString(), deliveryTeamsString, this.demandId, uuid);
+        }else if(schema instanceof ProjectSchemaV2){
+            UUID uuid = (this.linearId == null) ? null : this.linearId.getId();
+            List<Long> deliveryTeamKeyHashes = this.deliveryTeams.stream()
+                    .distinct()
+                    .map(ColumnUtil::keyHash).collect(Collectors.toList());
+
+            return new ProjectSchemaV2.PersistentProject(this.projectCode, this.allocationKey, this.description, this.budget, this.startDate, this.endDate, ColumnUtil.keyHash(this.sponsor), ColumnUtil.keyHash(this.platformLead), ColumnUtil.keyHash(this.cio), ColumnUtil.keyHash(this.coo), deliveryTeamKeyHashes, this.demandId, uuid);
         }else{
             throw new IllegalArgumentException("Unrecognised schema $schema");
         }
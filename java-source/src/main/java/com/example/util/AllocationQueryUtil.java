@@ -0,0 +1,43 @@
+package com.example.util;
+
+import com.example.schema.AllocationSchemaV1;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.QueryCriteria;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+
+/**
+ * Vault queries over the Allocation custom schema.
+ */
+public class AllocationQueryUtil {
+    /**
+     * Criteria matching the unconsumed allocations of the delivery team on the project whose dates overlap the given
+     * period, i.e. starting on or before its end and ending on or after its start, as DateUtil.checkOverlappingDatePeriod
+     * does. The allocation being updated, if any, is excluded. The query is served by allocation_team_dates_idx, so it
+     * only touches the allocations in the conflict window.
+     */
+    public static QueryCriteria overlappingAllocationsCriteria(Party deliveryTeam, String projectCode,
+                                                               LocalDateTime startDate, LocalDateTime endDate,
+                                                               UniqueIdentifier excludedLinearId) {
+        QueryCriteria criteria = PartyCriteria.equal(field("deliveryTeam"), deliveryTeam)
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(field("projectCode"), projectCode)))
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.lessThanOrEqual(field("startDate"), endDate)))
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.greaterThanOrEqual(field("endDate"), startDate)));
+        if (excludedLinearId != null) {
+            criteria = criteria.and(new QueryCriteria.VaultCustomQueryCriteria(
+                    Builder.notEqual(field("linearId"), excludedLinearId.getId())));
+        }
+        return criteria;
+    }
+
+    private static Field field(String name) {
+        try {
+            return AllocationSchemaV1.PersistentAllocation.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Allocation schema does not define " + name, e);
+        }
+    }
+}
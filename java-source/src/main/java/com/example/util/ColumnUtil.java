@@ -0,0 +1,71 @@
+package com.example.util;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.AbstractParty;
+
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Conversions between the values of mapped schema fields and what Hibernate stores in their columns, for the
+ * services that read or write those tables over JDBC.
+ */
+public class ColumnUtil {
+    /**
+     * Returns the value as Hibernate binds it: UUIDs as 16 byte binaries, most significant half first, and
+     * LocalDateTimes as timestamps. Other values are bound as they are.
+     */
+    public static Object toColumn(Object value) {
+        if (value instanceof UUID) {
+            final UUID uuid = (UUID) value;
+            return ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .array();
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a UUID column back, whether the driver returns it as a UUID, as 16 bytes or as a string.
+     */
+    public static UUID uuidOf(Object value) {
+        if (value instanceof UUID) {
+            return (UUID) value;
+        }
+        if (value instanceof byte[] && ((byte[]) value).length == 16) {
+            final ByteBuffer buffer = ByteBuffer.wrap((byte[]) value);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        return UUID.fromString(value.toString());
+    }
+
+    /**
+     * Returns how the V2 schemas store a party: the first eight bytes of the SHA-256 hash of its owning key. This is
+     * fixed width, unlike the X.500 name, and is computed from the state alone, so mapping a state needs no lookup.
+     */
+    public static long keyHash(AbstractParty party) {
+        return keyHash(party.getOwningKey());
+    }
+
+    public static long keyHash(PublicKey key) {
+        return ByteBuffer.wrap(SecureHash.sha256(key.getEncoded()).getBytes()).getLong();
+    }
+
+    /**
+     * Returns the party as stored in a column of the given type: its key hash in long columns, as in the V2 schemas,
+     * and its name otherwise, as in V1.
+     */
+    public static Object partyColumn(Class<?> columnType, AbstractParty party) {
+        if (columnType == long.class || columnType == Long.class) {
+            return keyHash(party);
+        }
+        return party.toString();
+    }
+}
@@ -1,12 +1,50 @@
 package com.example.util;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 
 public class DateUtil {
+    /**
+     * The date format of the REST API, both for the dates it accepts and for those it returns.
+     */
+    public static final String DATE_PATTERN = "dd/MM/yyyy";
+    public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
+
+    /**
+     * How long after expiry a scheduled close flow runs. Its time window opens at expiry, so this covers a notary
+     * whose clock is behind the node's; a close rejected by the notary is not retried.
+     */
+    public static final Duration CLOSE_TOLERANCE = Duration.ofMinutes(5);
+
     public static boolean checkOverlappingDatePeriod(LocalDateTime startDatePeriodA, LocalDateTime endDatePeriodA,
                                                      LocalDateTime startDatePeriodB, LocalDateTime endDatePeriodB){
         LocalDateTime maxStartDate = (startDatePeriodA.isAfter(startDatePeriodB)) ? startDatePeriodA : startDatePeriodB;
         LocalDateTime minEndDate = (endDatePeriodA.isBefore(endDatePeriodB)) ? endDatePeriodA : endDatePeriodB;
         return maxStartDate.isBefore(minEndDate) || maxStartDate.isEqual(minEndDate);
     }
+
+    /**
+     * Returns the instant a state ending on endDate expires. End dates are inclusive, so this is the start of the
+     * following day, in UTC so that every node and the contract agree on it.
+     */
+    public static Instant expiryOf(LocalDateTime endDate){
+        return endDate.toLocalDate().plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the instant a close flow is scheduled for a state ending on endDate: its expiry plus CLOSE_TOLERANCE.
+     */
+    public static Instant closeTimeOf(LocalDateTime endDate){
+        return expiryOf(endDate).plus(CLOSE_TOLERANCE);
+    }
+
+    /**
+     * Formats the date as the states' JSON does, or returns null for a missing date.
+     */
+    public static String format(LocalDateTime date){
+        return (date == null) ? null : DATE_FORMATTER.format(date);
+    }
 }
@@ -0,0 +1,160 @@
+package com.example.util;
+
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.BinaryComparisonOperator;
+import net.corda.core.node.services.vault.ColumnPredicate;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Helpers for walking vault query results one page at a time.
+ *
+ * Cursors are opaque to clients, but they are only an encoded Corda page number, that is an offset into the sorted
+ * results, handed back in the X-Next-Cursor response header. Every sort ends with the state's transaction id and
+ * output index, so that the outputs of one transaction, which share a recorded time, keep the same order from one
+ * page to the next. States recorded between two requests can still shift the offsets. The response body stays a
+ * plain JSON list of states, or of their compact views.
+ */
+public class PagingUtil {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public static final String RECORDED_TIME = "recordedTime";
+    public static final SortAttribute RECORDED_TIME_ATTRIBUTE = new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME);
+    public static final SortAttribute TXN_ID_ATTRIBUTE = new SortAttribute.Standard(Sort.VaultStateAttribute.STATE_REF_TXN_ID);
+    public static final SortAttribute OUTPUT_INDEX_ATTRIBUTE = new SortAttribute.Standard(Sort.VaultStateAttribute.STATE_REF_INDEX);
+
+    /**
+     * Recording order, with the transaction id and output index breaking ties, for walking a whole query with
+     * recordedSince rather than with a growing offset.
+     */
+    public static final Sort RECORDED_ORDER = new Sort(ImmutableSet.of(
+            new Sort.SortColumn(RECORDED_TIME_ATTRIBUTE, Sort.Direction.ASC),
+            new Sort.SortColumn(TXN_ID_ATTRIBUTE, Sort.Direction.ASC),
+            new Sort.SortColumn(OUTPUT_INDEX_ATTRIBUTE, Sort.Direction.ASC)));
+
+    private static final int FIRST_PAGE = 1;
+    private static final String CURSOR_PREFIX = "page:";
+
+    public static PageSpecification pageSpecification(String cursor, Integer pageSize) {
+        int size = (pageSize == null) ? DEFAULT_PAGE_SIZE : pageSize;
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(String.format("Query parameter 'pageSize' must be between 1 and %d.", MAX_PAGE_SIZE));
+        }
+        return new PageSpecification(decodeCursor(cursor), size);
+    }
+
+    public static Sort sort(String column, String order, Map<String, SortAttribute> sortColumns) {
+        String sortColumn = (column == null) ? RECORDED_TIME : column;
+        SortAttribute attribute = sortColumns.get(sortColumn);
+        if (attribute == null) {
+            throw new IllegalArgumentException(String.format("Query parameter 'sort' must be one of %s.", sortColumns.keySet()));
+        }
+
+        Sort.Direction direction;
+        if (order == null || "asc".equalsIgnoreCase(order)) {
+            direction = Sort.Direction.ASC;
+        } else if ("desc".equalsIgnoreCase(order)) {
+            direction = Sort.Direction.DESC;
+        } else {
+            throw new IllegalArgumentException("Query parameter 'order' must be either 'asc' or 'desc'.");
+        }
+        return new Sort(ImmutableSet.of(
+                new Sort.SortColumn(attribute, direction),
+                new Sort.SortColumn(TXN_ID_ATTRIBUTE, direction),
+                new Sort.SortColumn(OUTPUT_INDEX_ATTRIBUTE, direction)));
+    }
+
+    /**
+     * Returns the cursor for the page following the given one, or null when the given page is the last.
+     */
+    public static String nextCursor(Vault.Page<?> page, PageSpecification pageSpecification) {
+        long seen = (long) pageSpecification.getPageNumber() * pageSpecification.getPageSize();
+        return (seen < page.getTotalStatesAvailable()) ? encodeCursor(pageSpecification.getPageNumber() + 1) : null;
+    }
+
+    public static String encodeCursor(int pageNumber) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + pageNumber).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST_PAGE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                int pageNumber = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+                if (pageNumber >= FIRST_PAGE) {
+                    return pageNumber;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            //fall through to the error below, NumberFormatException included
+        }
+        throw new IllegalArgumentException("Query parameter 'cursor' is not a valid cursor.");
+    }
+
+    /**
+     * Criteria matching the states of the given status recorded at or after the given time, or all of them when the
+     * time is null.
+     */
+    public static QueryCriteria recordedSince(Vault.StateStatus status, Instant recordedTime) {
+        if (recordedTime == null) {
+            return new QueryCriteria.VaultQueryCriteria(status);
+        }
+        QueryCriteria.TimeCondition recordedSince = new QueryCriteria.TimeCondition(QueryCriteria.TimeInstantType.RECORDED,
+                new ColumnPredicate.BinaryComparison<>(BinaryComparisonOperator.GREATER_THAN_OR_EQUAL, recordedTime));
+        return new QueryCriteria.VaultQueryCriteria(status, null, null, null, null, recordedSince);
+    }
+
+    /**
+     * Runs a single page of the given query and wraps the states in a response carrying the paging headers, using the
+     * compact views of the states when compact or fields is given, see StateViews.
+     */
+    public static <T extends ContractState> Response queryPage(CordaRPCOps rpcOps, QueryCriteria criteria, Class<T> stateType,
+                                                             Map<String, SortAttribute> sortColumns, Integer pageSize,
+                                                             String cursor, String sortColumn, String order,
+                                                             boolean compact, String fields) {
+        final PageSpecification pageSpecification;
+        final Sort sort;
+        final Function<StateAndRef<T>, Object> view;
+        try {
+            pageSpecification = pageSpecification(cursor, pageSize);
+            sort = sort(sortColumn, order, sortColumns);
+            view = StateViews.viewOf(stateType, compact, fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(BAD_REQUEST).entity(e.getMessage() + "\n").build();
+        }
+
+        Vault.Page<T> page = rpcOps.vaultQueryBy(criteria, pageSpecification, sort, stateType);
+        Response.ResponseBuilder builder = Response.status(OK)
+                .entity(StateViews.apply(page.getStates(), view))
+                .header(TOTAL_COUNT_HEADER, page.getTotalStatesAvailable());
+        String next = nextCursor(page, pageSpecification);
+        if (next != null) {
+            builder.header(NEXT_CURSOR_HEADER, next);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.util;
+
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.QueryCriteria;
+
+import java.lang.reflect.Field;
+
+/**
+ * Vault query criteria on the party columns of the custom schemas. Parties are stored as names in V1 and as key
+ * hashes in V2; the party is translated to whatever the column holds, so callers pass parties and need not know
+ * which schema version they are querying.
+ */
+public class PartyCriteria {
+    /**
+     * Criteria matching the rows whose party column holds the given party.
+     */
+    public static QueryCriteria equal(Field field, AbstractParty party) {
+        return new QueryCriteria.VaultCustomQueryCriteria(
+                Builder.equal(field, ColumnUtil.partyColumn(field.getType(), party)));
+    }
+}
@@ -16,4 +16,12 @@ public class ResponseUtil {
         jsonObject.put("message", msg);
         return jsonObject;
     }
+
+    public static JSONObject generateAcceptedJsonObject(String msg, String flowId){
+        final JSONObject jsonObject = new JSONObject();
+        jsonObject.put("status", "accepted");
+        jsonObject.put("message", msg);
+        jsonObject.put("flowId", flowId);
+        return jsonObject;
+    }
 }
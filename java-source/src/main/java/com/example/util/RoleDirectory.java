@@ -0,0 +1,113 @@
+package com.example.util;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.identity.CordaX500Name;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The X.500 names of the parties playing each business role, shared by the node's RoleDirectoryService and the
+ * webserver so that neither has to hard-code names or guess roles from organisation names.
+ *
+ * The mapping is a properties file with one key per role, the names separated by ';' because X.500 names contain
+ * commas. It is read from the file named by the role.directory.file system property, else from roles.properties in
+ * the working directory (the node's base directory), else from the roles.properties bundled with the CorDapp.
+ */
+public class RoleDirectory {
+    public static final String FILE_PROPERTY = "role.directory.file";
+    public static final String FILE_NAME = "roles.properties";
+    private static final String SEPARATOR = ";";
+
+    public enum Role {
+        SPONSOR("sponsor"),
+        PLATFORM_LEAD("platformLead"),
+        CIO("cio"),
+        COO("coo"),
+        DELIVERY_TEAM("deliveryTeam");
+
+        private final String key;
+
+        Role(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Map<Role, Set<CordaX500Name>> names;
+
+    private RoleDirectory(Map<Role, Set<CordaX500Name>> names) {
+        this.names = ImmutableMap.copyOf(names);
+    }
+
+    /**
+     * Loads the role directory from the first of the configured file, the working directory's roles.properties and
+     * the bundled roles.properties that exists.
+     */
+    public static RoleDirectory load() {
+        final String configured = System.getProperty(FILE_PROPERTY);
+        final Path path = Paths.get((configured == null) ? FILE_NAME : configured);
+        final Properties properties = new Properties();
+        try {
+            if (Files.exists(path)) {
+                try (Reader reader = Files.newBufferedReader(path)) {
+                    properties.load(reader);
+                }
+            } else if (configured != null) {
+                throw new IllegalStateException(String.format("Role directory file %s not found.", path));
+            } else {
+                try (InputStream stream = RoleDirectory.class.getClassLoader().getResourceAsStream(FILE_NAME)) {
+                    if (stream == null) {
+                        throw new IllegalStateException(String.format("No %s found for the role directory.", FILE_NAME));
+                    }
+                    properties.load(stream);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the role directory", e);
+        }
+        return fromProperties(properties);
+    }
+
+    /**
+     * Builds the directory from properties keyed by Role.getKey(). Roles without a key have no parties.
+     */
+    public static RoleDirectory fromProperties(Properties properties) {
+        final Map<Role, Set<CordaX500Name>> names = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            final Set<CordaX500Name> roleNames = new LinkedHashSet<>();
+            final String value = properties.getProperty(role.getKey(), "");
+            for (String name : value.split(SEPARATOR)) {
+                if (!name.trim().isEmpty()) {
+                    roleNames.add(CordaX500Name.parse(name.trim()));
+                }
+            }
+            names.put(role, ImmutableSet.copyOf(roleNames));
+        }
+        return new RoleDirectory(names);
+    }
+
+    /**
+     * Returns the names of the parties with the role, in the order they are listed.
+     */
+    public Set<CordaX500Name> namesOf(Role role) {
+        return names.get(role);
+    }
+
+    public boolean hasRole(CordaX500Name name, Role role) {
+        return names.get(role).contains(name);
+    }
+}
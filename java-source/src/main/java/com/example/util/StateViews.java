@@ -0,0 +1,179 @@
+package com.example.util;
+
+import com.example.state.AllocationState;
+import com.example.state.DemandState;
+import com.example.state.ProjectState;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.Party;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.OK;
+
+/**
+ * Compact representations of the Project, Allocation and Demand states for the list endpoints.
+ *
+ * A StateAndRef carries the transaction state envelope, the notary and every party's public key, most of which
+ * the UI never reads. The compact view is a flat map of the state's own fields with parties reduced to their X.500
+ * names and dates in the dd/MM/yyyy format of the full states, plus the state ref. Clients ask for it with
+ * compact=true, or with fields=a,b,c to receive only those fields.
+ */
+public class StateViews {
+    public static final String REF = "ref";
+
+    public static final Set<String> PROJECT_FIELDS = ImmutableSet.of(REF, "linearId", "projectCode", "allocationKey",
+            "description", "budget", "startDate", "endDate", "sponsor", "platformLead", "cio", "coo", "deliveryTeams",
+            "demandId");
+    public static final Set<String> ALLOCATION_FIELDS = ImmutableSet.of(REF, "linearId", "projectCode", "allocationKey",
+            "description", "platformLead", "deliveryTeam", "coo", "allocationAmount", "startDate", "endDate");
+    public static final Set<String> DEMAND_FIELDS = ImmutableSet.of(REF, "linearId", "description", "amount",
+            "startDate", "endDate", "sponsor", "platformLead", "approvalParties");
+
+    private static final Map<Class<?>, Set<String>> FIELDS = ImmutableMap.of(
+            ProjectState.class, PROJECT_FIELDS,
+            AllocationState.class, ALLOCATION_FIELDS,
+            DemandState.class, DEMAND_FIELDS);
+
+    public static Map<String, Object> project(StateAndRef<ProjectState> stateAndRef) {
+        final ProjectState project = stateAndRef.getState().getData();
+        final Map<String, Object> view = new LinkedHashMap<>();
+        view.put(REF, stateAndRef.getRef().toString());
+        view.put("linearId", project.getLinearId().getId().toString());
+        view.put("projectCode", project.getProjectCode());
+        view.put("allocationKey", project.getAllocationKey());
+        view.put("description", project.getDescription());
+        view.put("budget", project.getBudget());
+        view.put("startDate", DateUtil.format(project.getStartDate()));
+        view.put("endDate", DateUtil.format(project.getEndDate()));
+        view.put("sponsor", name(project.getSponsor()));
+        view.put("platformLead", name(project.getPlatformLead()));
+        view.put("cio", name(project.getCio()));
+        view.put("coo", name(project.getCoo()));
+        view.put("deliveryTeams", names(project.getDeliveryTeams()));
+        view.put("demandId", project.getDemandId());
+        return view;
+    }
+
+    public static Map<String, Object> allocation(StateAndRef<AllocationState> stateAndRef) {
+        final AllocationState allocation = stateAndRef.getState().getData();
+        final Map<String, Object> view = new LinkedHashMap<>();
+        view.put(REF, stateAndRef.getRef().toString());
+        view.put("linearId", allocation.getLinearId().getId().toString());
+        view.put("projectCode", allocation.getProjectCode());
+        view.put("allocationKey", allocation.getAllocationKey());
+        view.put("description", allocation.getDescription());
+        view.put("platformLead", name(allocation.getPlatformLead()));
+        view.put("deliveryTeam", name(allocation.getDeliveryTeam()));
+        view.put("coo", name(allocation.getCoo()));
+        view.put("allocationAmount", allocation.getAllocationAmount());
+        view.put("startDate", DateUtil.format(allocation.getStartDate()));
+        view.put("endDate", DateUtil.format(allocation.getEndDate()));
+        return view;
+    }
+
+    public static Map<String, Object> demand(StateAndRef<DemandState> stateAndRef) {
+        final DemandState demand = stateAndRef.getState().getData();
+        final Map<String, Object> view = new LinkedHashMap<>();
+        view.put(REF, stateAndRef.getRef().toString());
+        view.put("linearId", demand.getLinearId().getId().toString());
+        view.put("description", demand.getDescription());
+        view.put("amount", demand.getAmount());
+        view.put("startDate", DateUtil.format(demand.getStartDate()));
+        view.put("endDate", DateUtil.format(demand.getEndDate()));
+        view.put("sponsor", name(demand.getSponsor()));
+        view.put("platformLead", name(demand.getPlatformLead()));
+        view.put("approvalParties", names(demand.getApprovalParties()));
+        return view;
+    }
+
+    /**
+     * Returns the function turning a state into what the list endpoint should serialise, or null when the full
+     * StateAndRef was asked for. Unknown field names are rejected with an IllegalArgumentException.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ContractState> Function<StateAndRef<T>, Object> viewOf(Class<T> stateType, boolean compact, String fields) {
+        if (!compact && (fields == null || fields.isEmpty())) {
+            return null;
+        }
+
+        final Function<StateAndRef<T>, Map<String, Object>> toView;
+        if (stateType == ProjectState.class) {
+            toView = stateAndRef -> project((StateAndRef<ProjectState>) (StateAndRef<?>) stateAndRef);
+        } else if (stateType == AllocationState.class) {
+            toView = stateAndRef -> allocation((StateAndRef<AllocationState>) (StateAndRef<?>) stateAndRef);
+        } else if (stateType == DemandState.class) {
+            toView = stateAndRef -> demand((StateAndRef<DemandState>) (StateAndRef<?>) stateAndRef);
+        } else {
+            throw new IllegalArgumentException(String.format("No compact view for %s.", stateType.getSimpleName()));
+        }
+
+        if (fields == null || fields.isEmpty()) {
+            return toView::apply;
+        }
+        final Set<String> selected = parseFields(fields, FIELDS.get(stateType));
+        return stateAndRef -> {
+            final Map<String, Object> view = toView.apply(stateAndRef);
+            view.keySet().retainAll(selected);
+            return view;
+        };
+    }
+
+    /**
+     * Applies the view returned by viewOf to a list of states, or returns the states unchanged if there is none.
+     */
+    public static <T extends ContractState> List<?> apply(List<StateAndRef<T>> states, Function<StateAndRef<T>, Object> view) {
+        return (view == null) ? states : states.stream().map(view).collect(toList());
+    }
+
+    /**
+     * Wraps a list of states, or their compact views, in a 200 response; a bad fields selector gives a 400.
+     */
+    public static <T extends ContractState> Response listResponse(List<StateAndRef<T>> states, Class<T> stateType,
+                                                                  boolean compact, String fields) {
+        final Function<StateAndRef<T>, Object> view;
+        try {
+            view = viewOf(stateType, compact, fields);
+        } catch (IllegalArgumentException e) {
+            return Response.status(BAD_REQUEST).entity(e.getMessage() + "\n").build();
+        }
+        return Response.status(OK).entity(apply(states, view)).build();
+    }
+
+    static Set<String> parseFields(String fields, Set<String> known) {
+        final Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            final String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException(String.format("Query parameter 'fields' must only name fields from %s.", known));
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    private static String name(Party party) {
+        return (party == null) ? null : party.getName().toString();
+    }
+
+    private static List<String> names(List<Party> parties) {
+        if (parties == null) {
+            return new ArrayList<>();
+        }
+        return parties.stream().map(StateViews::name).collect(toList());
+    }
+}
@@ -23,7 +23,7 @@ app.config(['$qProvider', function ($qProvider) {
     $qProvider.errorOnUnhandledRejections(false);
 }]);
 
-app.controller('DemoAppController', function($http, $location, $uibModal) {
+app.controller('DemoAppController', function($http, $location, $uibModal, $scope) {
     const demoApp = this;
 
     // We identify the node.
@@ -124,31 +124,56 @@ app.controller('DemoAppController', function($http, $location, $uibModal) {
         modalInstance.result.then(() => {}, () => {});
     };
 
-    demoApp.getDemands = () => $http.get(apiBaseURL)
-        .then((response) => demoApp.demands = Object.keys(response.data)
-            .map((key) => response.data[key].state.data)
-            .reverse());
+    // The demand and allocation lists are paged; follow the X-Next-Cursor header until the last page has been read.
+    const getAllPages = (url, states = [], cursor = null) => $http.get(url, { params: cursor ? { cursor: cursor } : {} })
+        .then((response) => {
+            const page = states.concat(Object.keys(response.data).map((key) => response.data[key].state.data));
+            const next = response.headers("X-Next-Cursor");
+            return next ? getAllPages(url, page, next) : page;
+        });
+
+    demoApp.getDemands = () => getAllPages(apiBaseURL)
+        .then((demands) => demoApp.demands = demands.reverse());
 
     demoApp.getProjects = () => $http.get("/api/project/")
         .then((response) => demoApp.projects = Object.keys(response.data)
             .map((key) => response.data[key].state.data)
             .reverse());
 
-    demoApp.getAllocations = () => $http.get("/api/project/allocations")
-        .then((response) => demoApp.allocations = Object.keys(response.data)
-            .map((key) => response.data[key].state.data)
-            .reverse());
+    demoApp.getAllocations = () => getAllPages("/api/project/allocations")
+        .then((allocations) => demoApp.allocations = allocations.reverse());
 
     demoApp.getDemands();
     demoApp.getProjects();
     demoApp.getAllocations();
 
-    //refresh every 5s
-    setInterval(function(){
-        demoApp.getDemands();
-        demoApp.getProjects();
-        demoApp.getAllocations();
-    }, 5000);
+    // Merge a vault update pushed by the webserver into one of the lists, keyed by linear id.
+    const applyUpdate = (list, update) => {
+        const produced = {};
+        update.produced.forEach((stateAndRef) => produced[stateAndRef.state.data.linearId.id] = stateAndRef.state.data);
+        const consumed = update.consumed.map((stateAndRef) => stateAndRef.state.data.linearId.id);
+
+        const updated = (list || [])
+            .filter((state) => produced[state.linearId.id] !== undefined || consumed.indexOf(state.linearId.id) < 0)
+            .map((state) => {
+                const replacement = produced[state.linearId.id];
+                delete produced[state.linearId.id];
+                return replacement || state;
+            });
+        return Object.keys(produced).map((id) => produced[id]).concat(updated);
+    };
+
+    // Listen for vault updates instead of polling. EventSource reconnects on its own and sends the last event id,
+    // so missed updates are replayed; a 'reset' event means they were lost and the whole list is reloaded.
+    const subscribe = (type, reload, apply) => {
+        const source = new EventSource("/api/events/" + type);
+        source.addEventListener("update", (event) => $scope.$applyAsync(() => apply(JSON.parse(event.data))));
+        source.addEventListener("reset", () => $scope.$applyAsync(reload));
+    };
+
+    subscribe("demand", demoApp.getDemands, (update) => demoApp.demands = applyUpdate(demoApp.demands, update));
+    subscribe("project", demoApp.getProjects, (update) => demoApp.projects = applyUpdate(demoApp.projects, update));
+    subscribe("allocation", demoApp.getAllocations, (update) => demoApp.allocations = applyUpdate(demoApp.allocations, update));
 });
 
 app.controller('ModalUpdateDemandCtrl', function ($http, $location, $uibModalInstance, $uibModal, demoApp, apiBaseURL, peers, id, sponsor, platformLead, description) {
@@ -179,9 +204,6 @@ app.controller('ModalUpdateDemandCtrl', function ($http, $location, $uibModalIns
             $http.post(updateDemandEndpoint).then(
                 (result) => {
                     updateModalInstance.displayMessage(result);
-                    demoApp.getDemands();
-                    demoApp.getProjects();
-                    demoApp.getAllocations();
                 },
                 (result) => {
                     updateModalInstance.displayMessage(result);
@@ -267,9 +289,6 @@ app.controller('ModalUpdateAllocationCtrl', function ($http, $location, $uibModa
             $http.post(allocationEndpoint).then(
                 (result) => {
                     updateAllocationModalInstance.displayMessage(result);
-                    demoApp.getDemands();
-                    demoApp.getProjects();
-                    demoApp.getAllocations();
                 },
                 (result) => {
                     updateAllocationModalInstance.displayMessage(result);
@@ -345,9 +364,6 @@ app.controller('ModalAllocationCtrl', function ($http, $location, $uibModalInsta
             $http.post(allocationEndpoint).then(
                 (result) => {
                     allocateModalInstance.displayMessage(result);
-                    demoApp.getDemands();
-                    demoApp.getProjects();
-                    demoApp.getAllocations();
                 },
                 (result) => {
                     allocateModalInstance.displayMessage(result);
@@ -411,9 +427,6 @@ app.controller('ModalCreateDemandCtrl', function ($http, $location, $uibModalIns
             $http.post(createDemandEndpoint).then(
                 (result) => {
                     createModalInstance.displayMessage(result);
-                    demoApp.getDemands();
-                    demoApp.getProjects();
-                    demoApp.getAllocations();
                 },
                 (result) => {
                     createModalInstance.displayMessage(result);
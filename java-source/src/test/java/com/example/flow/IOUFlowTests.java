@@ -32,7 +32,7 @@ public class IOUFlowTests {
 
     @Before
     public void setup() {
-        setCordappPackages("com.example.contract");
+        setCordappPackages("com.example.contract", "com.example.service");
         network = new MockNetwork();
         BasketOfNodes nodes = network.createSomeNodes(2);
         a = nodes.getPartyNodes().get(0);
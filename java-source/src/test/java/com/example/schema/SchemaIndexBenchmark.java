@@ -0,0 +1,331 @@
+package com.example.schema;
+
+import com.example.util.ColumnUtil;
+
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Times the queries the flows and APIs run against the Allocation and Demand tables, on copies of the V1 tables with
+ * and without the indexes their entities declare, holding the same rows, in an in-memory H2 database like the node's.
+ *
+ * The tables and their indexes are created from the entity annotations, so the benchmark follows any change to the
+ * schemas. Element collections get a table named after the entity table and field, as Hibernate names them. Four in
+ * five rows are marked consumed in vault_states, as most of a busy vault is history.
+ *
+ * Run with ./gradlew runSchemaIndexBenchmark; -Dbenchmark.rows (default 100000) and -Dbenchmark.iterations
+ * (default 200) change the size of the tables and the number of timed runs per query.
+ */
+public class SchemaIndexBenchmark {
+    private static final int TEAMS = 50;
+    private static final int PLATFORM_LEADS = 20;
+    private static final int PROJECTS = 5000;
+    private static final int WARMUP_ITERATIONS = 20;
+
+    /**
+     * The two copies of the tables, the indexed one under the entities' own table names.
+     */
+    private enum Tables {
+        UNINDEXED("_unindexed", false),
+        INDEXED("", true);
+
+        private final String suffix;
+        private final boolean indexed;
+
+        Tables(String suffix, boolean indexed) {
+            this.suffix = suffix;
+            this.indexed = indexed;
+        }
+
+        private String sql(String template) {
+            return template.replace("{allocations}", "Allocation" + suffix)
+                    .replace("{demands}", "Demand" + suffix);
+        }
+    }
+
+    private final int rows = Integer.getInteger("benchmark.rows", 100000);
+    private final int iterations = Integer.getInteger("benchmark.iterations", 200);
+    private final Random random = new Random(42);
+    private final Random statuses = new Random(7);
+    private final List<UUID> allocationIds = new ArrayList<>();
+    private final List<UUID> demandIds = new ArrayList<>();
+
+    public static void main(String[] args) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:schema_benchmark;DB_CLOSE_DELAY=-1", "sa", "")) {
+            new SchemaIndexBenchmark().run(connection);
+        }
+    }
+
+    private void run(Connection connection) throws SQLException {
+        execute(connection, "CREATE TABLE vault_states (transaction_id VARCHAR(64) NOT NULL, output_index INT NOT NULL,"
+                + " state_status INT NOT NULL, PRIMARY KEY (transaction_id, output_index))");
+        for (Tables tables : Tables.values()) {
+            createTables(connection, AllocationSchemaV1.PersistentAllocation.class, tables);
+            createTables(connection, DemandSchemaV1.PersistentDemand.class, tables);
+        }
+
+        System.out.printf("Populating %d allocations and %d demands...%n", rows, rows);
+        populate(connection);
+
+        final String unconsumed = " JOIN vault_states v ON t.transaction_id = v.transaction_id"
+                + " AND t.output_index = v.output_index WHERE v.state_status = 0";
+        System.out.printf("%-40s %12s %12s %9s%n", "query (mean over " + iterations + " runs)", "unindexed", "indexed", "speedup");
+        compare(connection, "overlapping allocations of a team",
+                "SELECT t.transaction_id FROM {allocations} t" + unconsumed + " AND t.deliveryTeam = ?"
+                        + " AND t.projectCode = ? AND t.startDate <= ? AND t.endDate >= ?",
+                () -> new Object[]{team(), project(), timestamp(), timestamp()});
+        compare(connection, "allocation totals of a project",
+                "SELECT t.deliveryTeam, COUNT(*), SUM(t.allocationAmount) FROM {allocations} t" + unconsumed
+                        + " AND t.projectCode = ? GROUP BY t.deliveryTeam",
+                () -> new Object[]{project()});
+        compare(connection, "allocations sorted by project code",
+                "SELECT t.transaction_id FROM {allocations} t" + unconsumed + " ORDER BY t.projectCode LIMIT 50",
+                () -> new Object[0]);
+        compare(connection, "allocations sorted by start date",
+                "SELECT t.transaction_id FROM {allocations} t" + unconsumed + " ORDER BY t.startDate LIMIT 50",
+                () -> new Object[0]);
+        compare(connection, "allocation versions by linear id",
+                "SELECT t.transaction_id FROM {allocations} t WHERE t.linearId = ?",
+                () -> new Object[]{ColumnUtil.toColumn(pick(allocationIds))});
+        compare(connection, "demands sorted by start date",
+                "SELECT t.transaction_id FROM {demands} t" + unconsumed + " ORDER BY t.startDate LIMIT 50",
+                () -> new Object[0]);
+        compare(connection, "demand versions by linear id",
+                "SELECT t.transaction_id FROM {demands} t WHERE t.linearId = ?",
+                () -> new Object[]{ColumnUtil.toColumn(pick(demandIds))});
+    }
+
+    private interface Parameters {
+        Object[] next();
+    }
+
+    /**
+     * Times the query on both copies, with the same sequence of parameters.
+     */
+    private void compare(Connection connection, String name, String sql, Parameters parameters) throws SQLException {
+        random.setSeed(1);
+        final long unindexed = time(connection, Tables.UNINDEXED, sql, parameters);
+        random.setSeed(1);
+        final long indexed = time(connection, Tables.INDEXED, sql, parameters);
+        System.out.printf("%-40s %12d %12d %8.1fx%n", name, unindexed, indexed, (double) unindexed / Math.max(1, indexed));
+    }
+
+    /**
+     * Returns the mean time in microseconds to run the query and read its results, after a warm up.
+     */
+    private long time(Connection connection, Tables tables, String sql, Parameters parameters) throws SQLException {
+        long total = 0;
+        try (PreparedStatement statement = connection.prepareStatement(tables.sql(sql))) {
+            for (int i = 0; i < WARMUP_ITERATIONS + iterations; i++) {
+                final Object[] values = parameters.next();
+                for (int j = 0; j < values.length; j++) {
+                    statement.setObject(j + 1, values[j]);
+                }
+                final long started = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getObject(1);
+                    }
+                }
+                if (i >= WARMUP_ITERATIONS) {
+                    total += System.nanoTime() - started;
+                }
+            }
+        }
+        return total / iterations / 1000;
+    }
+
+    private void populate(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement vaultStates = connection.prepareStatement("INSERT INTO vault_states VALUES (?, ?, ?)")) {
+            //both copies hold the same states, so their rows share refs and values
+            for (Tables tables : Tables.values()) {
+                random.setSeed(42);
+                allocationIds.clear();
+                try (PreparedStatement insert = connection.prepareStatement(tables.sql("INSERT INTO {allocations}"
+                        + " (transaction_id, output_index, projectCode, allocationKey, description, platformLead,"
+                        + " deliveryTeam, coo, allocationAmount, startDate, endDate, linearId)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"))) {
+                    for (int i = 0; i < rows; i++) {
+                        final String txId = txId("A", i);
+                        final LocalDateTime startDate = LocalDateTime.of(2017, 1, 1, 0, 0).plusDays(random.nextInt(1000));
+                        final UUID linearId = new UUID(random.nextLong(), random.nextLong());
+                        allocationIds.add(linearId);
+                        insert.setString(1, txId);
+                        insert.setInt(2, 0);
+                        insert.setString(3, project());
+                        insert.setString(4, "A" + i);
+                        insert.setString(5, "Allocation " + i);
+                        insert.setString(6, platformLead());
+                        insert.setString(7, team());
+                        insert.setString(8, "O=COO,L=Singapore,C=SG");
+                        insert.setInt(9, random.nextInt(100));
+                        insert.setTimestamp(10, Timestamp.valueOf(startDate));
+                        insert.setTimestamp(11, Timestamp.valueOf(startDate.plusDays(30)));
+                        insert.setObject(12, ColumnUtil.toColumn(linearId));
+                        insert.addBatch();
+                        if (tables == Tables.INDEXED) {
+                            addVaultState(vaultStates, txId);
+                        }
+                        if (i % 1000 == 999) {
+                            insert.executeBatch();
+                            vaultStates.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                    vaultStates.executeBatch();
+                }
+            }
+
+            for (Tables tables : Tables.values()) {
+                random.setSeed(42);
+                demandIds.clear();
+                try (PreparedStatement insert = connection.prepareStatement(tables.sql("INSERT INTO {demands}"
+                        + " (transaction_id, output_index, description, amount, startDate, endDate, sponsor, platformLead, linearId)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+                     PreparedStatement insertApproval = connection.prepareStatement(tables.sql("INSERT INTO {demands}_approvalParties"
+                             + " (transaction_id, output_index, approvalParties) VALUES (?, ?, ?)"))) {
+                    for (int i = 0; i < rows; i++) {
+                        final String txId = txId("D", i);
+                        final LocalDateTime startDate = LocalDateTime.of(2017, 1, 1, 0, 0).plusDays(random.nextInt(1000));
+                        final UUID linearId = new UUID(random.nextLong(), random.nextLong());
+                        demandIds.add(linearId);
+                        insert.setString(1, txId);
+                        insert.setInt(2, 0);
+                        insert.setString(3, "Demand " + i);
+                        insert.setInt(4, random.nextInt(1000));
+                        insert.setTimestamp(5, Timestamp.valueOf(startDate));
+                        insert.setTimestamp(6, Timestamp.valueOf(startDate.plusDays(90)));
+                        insert.setString(7, sponsor());
+                        insert.setString(8, platformLead());
+                        insert.setObject(9, ColumnUtil.toColumn(linearId));
+                        insert.addBatch();
+                        for (int j = 0; j < 2; j++) {
+                            insertApproval.setString(1, txId);
+                            insertApproval.setInt(2, 0);
+                            insertApproval.setString(3, platformLead());
+                            insertApproval.addBatch();
+                        }
+                        if (tables == Tables.INDEXED) {
+                            addVaultState(vaultStates, txId);
+                        }
+                        if (i % 1000 == 999) {
+                            insert.executeBatch();
+                            insertApproval.executeBatch();
+                            vaultStates.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                    insertApproval.executeBatch();
+                    vaultStates.executeBatch();
+                }
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        execute(connection, "ANALYZE");
+    }
+
+    private void addVaultState(PreparedStatement vaultStates, String txId) throws SQLException {
+        vaultStates.setString(1, txId);
+        vaultStates.setInt(2, 0);
+        vaultStates.setInt(3, (statuses.nextInt(5) == 0) ? 0 : 1);
+        vaultStates.addBatch();
+    }
+
+    /**
+     * Creates the entity's table and its element collection tables under the copy's names, with columns typed as
+     * Hibernate maps them on H2, and the indexes its annotations declare when the copy is indexed.
+     */
+    private static void createTables(Connection connection, Class<?> entity, Tables tables) throws SQLException {
+        final Table table = entity.getAnnotation(Table.class);
+        final String tableName = table.name() + tables.suffix;
+        final List<String> columns = new ArrayList<>();
+        columns.add("transaction_id VARCHAR(64) NOT NULL");
+        columns.add("output_index INT NOT NULL");
+        for (Field field : entity.getDeclaredFields()) {
+            final Column column = field.getAnnotation(Column.class);
+            if (column == null) {
+                continue;
+            }
+            if (field.getAnnotation(ElementCollection.class) == null) {
+                columns.add(column.name() + " " + sqlType(field.getType()));
+                continue;
+            }
+            final Type elementType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            execute(connection, "CREATE TABLE " + tableName + "_" + field.getName() + " (transaction_id VARCHAR(64) NOT NULL,"
+                    + " output_index INT NOT NULL, " + column.name() + " " + sqlType((Class<?>) elementType) + ")");
+        }
+        columns.add("PRIMARY KEY (transaction_id, output_index)");
+        execute(connection, "CREATE TABLE " + tableName + " (" + String.join(", ", columns) + ")");
+        if (tables.indexed) {
+            for (Index index : table.indexes()) {
+                execute(connection, "CREATE INDEX " + index.name() + " ON " + tableName + " (" + index.columnList() + ")");
+            }
+        }
+    }
+
+    private static String sqlType(Class<?> type) {
+        if (type == int.class) {
+            return "INT";
+        }
+        if (type == LocalDateTime.class) {
+            return "TIMESTAMP";
+        }
+        if (type == UUID.class) {
+            return "BINARY(16)";
+        }
+        return "VARCHAR(255)";
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String txId(String prefix, int i) {
+        return String.format("%s%058d", prefix, i);
+    }
+
+    private String team() {
+        return "O=DLTeam" + random.nextInt(TEAMS) + ",L=Singapore,C=SG";
+    }
+
+    private String platformLead() {
+        return "O=PL" + random.nextInt(PLATFORM_LEADS) + ",L=Singapore,C=SG";
+    }
+
+    private String sponsor() {
+        return "O=Sponsor" + random.nextInt(PLATFORM_LEADS) + ",L=Singapore,C=SG";
+    }
+
+    private String project() {
+        return "P" + random.nextInt(PROJECTS);
+    }
+
+    private Timestamp timestamp() {
+        return Timestamp.valueOf(LocalDateTime.of(2017, 1, 1, 0, 0).plusDays(random.nextInt(1000)));
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
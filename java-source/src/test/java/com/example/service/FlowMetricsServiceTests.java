@@ -0,0 +1,114 @@
+package com.example.service;
+
+import net.corda.core.utilities.ProgressTracker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlowMetricsServiceTests {
+    private final ProgressTracker.Step first = new ProgressTracker.Step("First step.");
+    private final ProgressTracker.Step second = new ProgressTracker.Step("Second step.");
+
+    private FlowMetricsService metrics;
+
+    @Before
+    public void setup() {
+        metrics = new FlowMetricsService(null);
+    }
+
+    @Test
+    public void recordsEveryStepAndTotalOnceDone() {
+        runFlow(TrackedFlow.class, true);
+
+        Map<String, Long> counts = counts(TrackedFlow.class);
+        assertEquals(3, counts.size());
+        assertEquals(1L, (long) counts.get(first.getLabel()));
+        assertEquals(1L, (long) counts.get(second.getLabel()));
+        assertEquals(1L, (long) counts.get(FlowMetricsService.TOTAL_STEP));
+    }
+
+    @Test
+    public void recordsNeitherLastStepNorTotalUntilDone() {
+        runFlow(UnfinishedFlow.class, false);
+
+        Map<String, Long> counts = counts(UnfinishedFlow.class);
+        assertEquals(1, counts.size());
+        assertEquals(1L, (long) counts.get(first.getLabel()));
+    }
+
+    @Test
+    public void countsEachRunOfTheSameFlow() {
+        runFlow(RepeatedFlow.class, true);
+        runFlow(RepeatedFlow.class, true);
+
+        Map<String, Long> counts = counts(RepeatedFlow.class);
+        assertEquals(2L, (long) counts.get(first.getLabel()));
+        assertEquals(2L, (long) counts.get(second.getLabel()));
+        assertEquals(2L, (long) counts.get(FlowMetricsService.TOTAL_STEP));
+    }
+
+    @Test
+    public void ignoresStepsOfChildTrackers() {
+        ProgressTracker.Step child = new ProgressTracker.Step("Child step.");
+        ProgressTracker childTracker = new ProgressTracker(child);
+        ProgressTracker tracker = new ProgressTracker(first, second);
+        tracker.setChildProgressTracker(first, childTracker);
+        metrics.track(ParentFlow.class, tracker);
+
+        tracker.setCurrentStep(first);
+        childTracker.setCurrentStep(child);
+        childTracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+        tracker.setCurrentStep(second);
+        tracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+
+        Map<String, Long> counts = counts(ParentFlow.class);
+        assertEquals(3, counts.size());
+        assertFalse(counts.containsKey(child.getLabel()));
+        assertEquals(1L, (long) counts.get(FlowMetricsService.TOTAL_STEP));
+    }
+
+    @Test
+    public void recordsNothingForAFlowThatStopsBeforeItsFirstStep() {
+        ProgressTracker tracker = new ProgressTracker(first, second);
+        metrics.track(SkippedFlow.class, tracker);
+
+        tracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+
+        assertTrue(counts(SkippedFlow.class).isEmpty());
+    }
+
+    private void runFlow(Class<?> flowClass, boolean done) {
+        ProgressTracker tracker = new ProgressTracker(first, second);
+        metrics.track(flowClass, tracker);
+        tracker.setCurrentStep(first);
+        tracker.setCurrentStep(second);
+        if (done) {
+            tracker.setCurrentStep(ProgressTracker.DONE.INSTANCE);
+        }
+    }
+
+    private Map<String, Long> counts(Class<?> flowClass) {
+        Map<String, Long> counts = new HashMap<>();
+        List<Map<String, Object>> rows = metrics.snapshot();
+        for (Map<String, Object> row : rows) {
+            if (flowClass.getName().equals(row.get("flow"))) {
+                counts.put((String) row.get("step"), (Long) row.get("count"));
+            }
+        }
+        return counts;
+    }
+
+    //one class per test, so that the JMX beans registered for a flow and step are not shared between tests
+    private static class TrackedFlow {}
+    private static class UnfinishedFlow {}
+    private static class RepeatedFlow {}
+    private static class ParentFlow {}
+    private static class SkippedFlow {}
+}
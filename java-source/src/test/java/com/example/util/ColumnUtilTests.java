@@ -0,0 +1,35 @@
+package com.example.util;
+
+import net.corda.core.crypto.Crypto;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ColumnUtilTests {
+    private final Party partyA = new Party(CordaX500Name.parse("O=PL1,L=Singapore,C=SG"), Crypto.generateKeyPair().getPublic());
+    private final Party partyB = new Party(CordaX500Name.parse("O=PL2,L=Singapore,C=SG"), Crypto.generateKeyPair().getPublic());
+
+    @Test
+    public void keyHashDependsOnlyOnKey() {
+        Party renamed = new Party(CordaX500Name.parse("O=Renamed,L=London,C=GB"), partyA.getOwningKey());
+        assertEquals(ColumnUtil.keyHash(partyA), ColumnUtil.keyHash(renamed));
+        assertNotEquals(ColumnUtil.keyHash(partyA), ColumnUtil.keyHash(partyB));
+    }
+
+    @Test
+    public void partyColumnFollowsColumnType() {
+        assertEquals(ColumnUtil.keyHash(partyA), ColumnUtil.partyColumn(long.class, partyA));
+        assertEquals(partyA.toString(), ColumnUtil.partyColumn(String.class, partyA));
+    }
+
+    @Test
+    public void uuidRoundTripsThroughColumn() {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, ColumnUtil.uuidOf(ColumnUtil.toColumn(uuid)));
+    }
+}
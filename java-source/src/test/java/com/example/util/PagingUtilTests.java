@@ -0,0 +1,37 @@
+package com.example.util;
+
+import net.corda.core.node.services.vault.PageSpecification;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PagingUtilTests {
+
+    @Test
+    public void missingCursorStartsAtFirstPage() {
+        assertEquals(1, PagingUtil.decodeCursor(null));
+        assertEquals(1, PagingUtil.decodeCursor(""));
+    }
+
+    @Test
+    public void cursorRoundTripsPageNumber() {
+        assertEquals(42, PagingUtil.decodeCursor(PagingUtil.encodeCursor(42)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsForgedCursor() {
+        PagingUtil.decodeCursor("not-a-cursor");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPageSizeAboveMaximum() {
+        PagingUtil.pageSpecification(null, PagingUtil.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    public void defaultsPageSize() {
+        PageSpecification pageSpecification = PagingUtil.pageSpecification(PagingUtil.encodeCursor(3), null);
+        assertEquals(3, pageSpecification.getPageNumber());
+        assertEquals(PagingUtil.DEFAULT_PAGE_SIZE, pageSpecification.getPageSize());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.util;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.CordaX500Name;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoleDirectoryTests {
+    private static final CordaX500Name PL1 = CordaX500Name.parse("O=PL1,L=Singapore,C=SG");
+    private static final CordaX500Name PL2 = CordaX500Name.parse("O=PL2,L=Singapore,C=SG");
+    private static final CordaX500Name COO = CordaX500Name.parse("O=COO,L=Singapore,C=SG");
+
+    @Test
+    public void parsesNamesInOrder() {
+        final Properties properties = new Properties();
+        properties.setProperty("platformLead", " O=PL2,L=Singapore,C=SG; O=PL1,L=Singapore,C=SG;");
+        properties.setProperty("coo", "O=COO,L=Singapore,C=SG");
+        final RoleDirectory directory = RoleDirectory.fromProperties(properties);
+
+        assertEquals(ImmutableList.of(PL2, PL1), ImmutableList.copyOf(directory.namesOf(RoleDirectory.Role.PLATFORM_LEAD)));
+        assertTrue(directory.hasRole(COO, RoleDirectory.Role.COO));
+        assertFalse(directory.hasRole(COO, RoleDirectory.Role.CIO));
+        assertTrue(directory.namesOf(RoleDirectory.Role.DELIVERY_TEAM).isEmpty());
+    }
+
+    @Test
+    public void loadsBundledDirectory() {
+        final RoleDirectory directory = RoleDirectory.load();
+
+        assertTrue(directory.hasRole(PL1, RoleDirectory.Role.PLATFORM_LEAD));
+        assertEquals(1, directory.namesOf(RoleDirectory.Role.COO).size());
+    }
+}
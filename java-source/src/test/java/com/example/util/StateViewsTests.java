@@ -0,0 +1,57 @@
+package com.example.util;
+
+import com.example.state.AllocationState;
+import com.example.state.ProjectState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static com.example.contract.AllocationContract.ALLOCATION_CONTRACT_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StateViewsTests {
+
+    @Test
+    public void fullStatesWithoutSelector() {
+        assertNull(StateViews.viewOf(ProjectState.class, false, null));
+        assertNull(StateViews.viewOf(ProjectState.class, false, ""));
+    }
+
+    @Test
+    public void parsesSelectedFieldsInOrder() {
+        assertEquals(ImmutableList.of("projectCode", "budget"),
+                ImmutableList.copyOf(StateViews.parseFields(" projectCode, budget,,", StateViews.PROJECT_FIELDS)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownField() {
+        StateViews.parseFields("projectCode,participants", StateViews.PROJECT_FIELDS);
+    }
+
+    @Test
+    public void formatsDatesAsTheFullStatesDo() {
+        AllocationState allocation = new AllocationState("PL000001", "AL000001", "Project", party("PL1"), party("DLTeam1"),
+                party("COO"), 100, LocalDateTime.of(2017, 3, 1, 0, 0), LocalDateTime.of(2017, 12, 31, 0, 0));
+        StateAndRef<AllocationState> stateAndRef = new StateAndRef<>(
+                new TransactionState<>(allocation, ALLOCATION_CONTRACT_ID, party("Controller")),
+                new StateRef(SecureHash.sha256("allocation"), 0));
+
+        Map<String, Object> view = StateViews.allocation(stateAndRef);
+        assertEquals("01/03/2017", view.get("startDate"));
+        assertEquals("31/12/2017", view.get("endDate"));
+    }
+
+    private static Party party(String organisation) {
+        return new Party(new CordaX500Name(organisation, "Singapore", "SG"), Crypto.generateKeyPair().getPublic());
+    }
+}